@@ -0,0 +1,206 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs a command file through three stages on separate threads: a reader that tokenizes lines,
+ * the engine that executes the commands, and a writer that emits the results.
+ * The stages share one preallocated ring of slots in the style of the Disruptor. Each stage owns
+ * a cursor, only reads slots its upstream cursor has passed, and each cursor has a single writer.
+ */
+public class CommandPipeline {
+
+    private static final int RING_SIZE = 1 << 12; // Number of slots, must be a power of two
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 20; // Size of the writer's output buffer
+    private static final int SPINS_BEFORE_YIELD = 100; // Busy spins before a waiting stage yields
+
+    /**
+     * One preallocated entry of the ring, reused for every command that maps to it.
+     */
+    private static class Slot {
+        String[] tokens; // Tokens of the command, set by the reader
+        String result; // Output of the command, set by the engine
+        boolean end; // Marks the end of the input
+    }
+
+    private final Slot[] ring; // Slots shared by all stages
+    private final int mask; // Mask to turn a sequence into a slot index
+
+    private final AtomicLong parsed = new AtomicLong(); // Number of slots filled by the reader
+    private final AtomicLong executed = new AtomicLong(); // Number of slots processed by the engine
+    private final AtomicLong written = new AtomicLong(); // Number of slots released by the writer
+
+    private volatile Throwable failure; // First error thrown by any stage
+
+    private final int maxPostAge; // Retention age limit in command ticks, 0 for none
+    private final int maxPostsPerAuthor; // Retention cap on live posts per author, 0 for none
+    private final int compactionBatch; // Expired posts compacted after each command, 0 for all
+
+    /**
+     * Constructs a pipeline and preallocates all slots of its ring.
+     *
+     * @param maxPostAge        Maximum age of a post in command ticks, or 0 for no age limit.
+     * @param maxPostsPerAuthor Maximum number of live posts per author, or 0 for no cap.
+     * @param compactionBatch   Number of expired posts compacted after each command, or 0 for all.
+     */
+    public CommandPipeline(int maxPostAge, int maxPostsPerAuthor, int compactionBatch) {
+        this.maxPostAge = maxPostAge;
+        this.maxPostsPerAuthor = maxPostsPerAuthor;
+        this.compactionBatch = compactionBatch;
+        ring = new Slot[RING_SIZE];
+        for (int i = 0; i < RING_SIZE; i++) {
+            ring[i] = new Slot();
+        }
+        mask = RING_SIZE - 1;
+    }
+
+    /**
+     * Waits until the given cursor has moved past the given sequence.
+     *
+     * @param cursor   The upstream cursor to wait on.
+     * @param sequence The sequence the cursor has to exceed.
+     * @return The current value of the cursor, so that every slot below it can be processed at once.
+     */
+    private long waitFor(AtomicLong cursor, long sequence) {
+        int spins = 0;
+        long available;
+        while ((available = cursor.get()) <= sequence) {
+            if (failure != null) {
+                throw new IllegalStateException("Pipeline stage failed", failure);
+            }
+            if (++spins < SPINS_BEFORE_YIELD) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Reader stage: tokenizes each line of the input into the next free slot.
+     *
+     * @param reader Reader of the command file.
+     * @throws IOException if reading fails.
+     */
+    private void readCommands(BufferedReader reader) throws IOException {
+        long sequence = 0;
+        long free = 0; // Sequences below this bound are known to be released by the writer
+        String line;
+        while (true) {
+            line = reader.readLine();
+            if (sequence >= free) {
+                free = waitFor(written, sequence - RING_SIZE) + RING_SIZE;
+            }
+            Slot slot = ring[(int) sequence & mask];
+            if (line == null) {
+                slot.end = true;
+                parsed.lazySet(sequence + 1);
+                return;
+            }
+            slot.tokens = line.split(" ");
+            parsed.lazySet(++sequence);
+        }
+    }
+
+    /**
+     * Engine stage: executes every parsed command in order against one set of maps.
+     */
+    private void executeCommands() {
+        CustomHashMap<String, User> allUserHM = new CustomHashMap<>();
+        PriorityQueue<Post> allPosts = new PriorityQueue<>();
+        CustomHashMap<String, Post> postHash = new CustomHashMap<>();
+        PostRetention retention = PostRetention.of(allUserHM, postHash, allPosts, maxPostAge, maxPostsPerAuthor,
+                compactionBatch);
+        long sequence = 0;
+        while (true) {
+            long available = waitFor(parsed, sequence);
+            for (; sequence < available; sequence++) {
+                Slot slot = ring[(int) sequence & mask];
+                if (slot.end) {
+                    executed.lazySet(sequence + 1);
+                    return;
+                }
+                slot.result = Main.executeCommand(slot.tokens, allUserHM, allPosts, postHash, retention);
+                slot.tokens = null;
+            }
+            executed.lazySet(sequence);
+        }
+    }
+
+    /**
+     * Writer stage: appends the results of executed commands to a large output buffer.
+     *
+     * @param writer Writer of the output file.
+     * @throws IOException if writing fails.
+     */
+    private void writeResults(BufferedWriter writer) throws IOException {
+        long sequence = 0;
+        while (true) {
+            long available = waitFor(executed, sequence);
+            for (; sequence < available; sequence++) {
+                Slot slot = ring[(int) sequence & mask];
+                if (slot.end) {
+                    return;
+                }
+                if (slot.result != null) {
+                    writer.write(slot.result);
+                    slot.result = null;
+                }
+            }
+            written.lazySet(sequence);
+        }
+    }
+
+    /**
+     * Starts a stage on its own thread, recording any error so the other stages stop waiting.
+     *
+     * @param name  Name of the thread.
+     * @param stage The stage to run.
+     * @return The started thread.
+     */
+    private Thread startStage(String name, Stage stage) {
+        Thread thread = new Thread(() -> {
+            try {
+                stage.run();
+            } catch (Throwable t) {
+                failure = t;
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * A pipeline stage that may fail with an I/O error.
+     */
+    private interface Stage {
+        void run() throws IOException;
+    }
+
+    /**
+     * Processes a command file through the pipeline, writing results on the calling thread.
+     *
+     * @param input             File containing the commands.
+     * @param output            File to write the results to.
+     * @param maxPostAge        Maximum age of a post in command ticks, or 0 for no age limit.
+     * @param maxPostsPerAuthor Maximum number of live posts per author, or 0 for no cap.
+     * @param compactionBatch   Number of expired posts compacted after each command, or 0 for all.
+     * @throws IOException if file operations fail.
+     */
+    public static void run(File input, File output, int maxPostAge, int maxPostsPerAuthor, int compactionBatch)
+            throws IOException {
+        CommandPipeline pipeline = new CommandPipeline(maxPostAge, maxPostsPerAuthor, compactionBatch);
+        try (BufferedReader reader = new BufferedReader(new FileReader(input));
+             BufferedWriter writer = new BufferedWriter(new FileWriter(output), OUTPUT_BUFFER_SIZE)) {
+            pipeline.startStage("feed-reader", () -> pipeline.readCommands(reader));
+            pipeline.startStage("feed-engine", pipeline::executeCommands);
+            pipeline.writeResults(writer);
+        }
+    }
+}
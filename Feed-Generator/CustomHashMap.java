@@ -1,4 +1,6 @@
 import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * A custom implementation of a HashMap using an array of buckets and separate chaining for collision handling.
@@ -12,15 +14,43 @@ public class CustomHashMap<K, V> {
     private static final int INITIAL_CAPACITY = 16; // Initial capacity of the HashMap
     private static final float LOAD_FACTOR = 0.75f; // Load factor for resizing
 
+    // Shared immutable empty map, see emptyMap()
+    private static final CustomHashMap<?, ?> EMPTY = new CustomHashMap<>(1, true);
+
     private ArrayList<Entry<K, V>>[] buckets; // Array of buckets to store entries
     private int size; // Current size of the HashMap
+    private final boolean immutable; // True only for the shared empty map
 
     /**
      * Constructs a new CustomHashMap with default initial capacity and load factor.
      */
     public CustomHashMap() {
-        buckets = new ArrayList[INITIAL_CAPACITY];
+        this(INITIAL_CAPACITY, false);
+    }
+
+    /**
+     * Constructs a CustomHashMap with the given number of buckets.
+     *
+     * @param capacity  The initial number of buckets.
+     * @param immutable Whether the map rejects insertions.
+     */
+    private CustomHashMap(int capacity, boolean immutable) {
+        buckets = new ArrayList[capacity];
         size = 0;
+        this.immutable = immutable;
+    }
+
+    /**
+     * Returns the shared empty map. It can be read like any other map but rejects insertions,
+     * so holders have to replace it with a new map before adding entries.
+     *
+     * @param <K> The type of keys.
+     * @param <V> The type of values.
+     * @return The shared empty map.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> CustomHashMap<K, V> emptyMap() {
+        return (CustomHashMap<K, V>) EMPTY;
     }
 
     /**
@@ -63,7 +93,7 @@ public class CustomHashMap<K, V> {
             ArrayList<Entry<K, V>> bucket = buckets[i];
             if (bucket != null) {
                 for (Entry<K, V> entry : bucket) {
-                    user.seenPost.put((String) entry.key, (Post) entry.value);
+                    user.markSeen((Post) entry.value);
                 }
             }
         }
@@ -75,8 +105,12 @@ public class CustomHashMap<K, V> {
      * @param key   The key to add or update.
      * @param value The value to associate with the key.
      * @return 0 if the entry is added successfully, or -1 if the key already exists.
+     * @throws UnsupportedOperationException If called on the shared empty map.
      */
     public int put(K key, V value) {
+        if (immutable) {
+            throw new UnsupportedOperationException("The shared empty map cannot be modified");
+        }
         int index = getBucketIndex(key);
 
         if (buckets[index] == null) {
@@ -111,7 +145,7 @@ public class CustomHashMap<K, V> {
             if (bucket != null) {
                 for (Entry<String, User> entry : bucket) {
                     User followedUser = entry.value;
-                    ArrayList<Post> posts = followedUser.posts;
+                    List<Post> posts = followedUser.posts;
                     for (Post post : posts) {
                         priorityQueue.insert(post);
                     }
@@ -194,6 +228,55 @@ public class CustomHashMap<K, V> {
         return get(key) != null;
     }
 
+    /**
+     * Collects all keys stored in the map into a list.
+     *
+     * @return An ArrayList containing every key in the map, in bucket order.
+     */
+    public ArrayList<K> keys() {
+        ArrayList<K> keys = new ArrayList<>(size);
+        for (ArrayList<Entry<K, V>> bucket : buckets) {
+            if (bucket != null) {
+                for (Entry<K, V> entry : bucket) {
+                    keys.add(entry.key);
+                }
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Collects all values stored in the map into a list.
+     *
+     * @return An ArrayList containing every value in the map, in bucket order.
+     */
+    public ArrayList<V> values() {
+        ArrayList<V> values = new ArrayList<>(size);
+        for (ArrayList<Entry<K, V>> bucket : buckets) {
+            if (bucket != null) {
+                for (Entry<K, V> entry : bucket) {
+                    values.add(entry.value);
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Passes every value stored in the map to the given action without copying them into a list.
+     *
+     * @param action The action to run for each value, in bucket order.
+     */
+    public void forEachValue(Consumer<? super V> action) {
+        for (ArrayList<Entry<K, V>> bucket : buckets) {
+            if (bucket != null) {
+                for (Entry<K, V> entry : bucket) {
+                    action.accept(entry.value);
+                }
+            }
+        }
+    }
+
     /**
      * Returns the current size of the HashMap.
      *
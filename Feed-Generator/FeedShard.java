@@ -0,0 +1,161 @@
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A single-threaded partition of the feed engine.
+ * Each shard owns the users hashed to it together with their posts, and only its own thread
+ * ever touches these structures. Other threads talk to a shard through its mailbox, which is a
+ * queue of slots. The coordinating thread reserves a slot for every step a command will run on the
+ * shard, in input order, and the step is filled in later once its input from another shard is known.
+ * The shard runs its slots strictly in reservation order and waits while the oldest one is still
+ * empty, so every shard sees the steps of all commands in the same order as a sequential run.
+ */
+public class FeedShard extends Thread {
+
+    private static final Runnable STOP = () -> { }; // Marker task that terminates the shard thread
+
+    /**
+     * A place in the mailbox reserved for a step whose task is filled in later.
+     */
+    static class Slot {
+        Runnable task; // Task of the step, null until filled, guarded by the mailbox
+    }
+
+    // Users owned by this shard
+    CustomHashMap<String, User> users;
+
+    // Posts created by the users of this shard
+    CustomHashMap<String, Post> postHash;
+
+    // Priority queue of posts created by the users of this shard
+    PriorityQueue<Post> allPosts;
+
+    // Index of this shard inside the engine
+    int index;
+
+    // Reserved slots in the order they run, guarded by itself
+    private final ArrayDeque<Slot> mailbox;
+
+    /**
+     * Constructs an empty shard with the given index.
+     *
+     * @param index The index of the shard inside the engine.
+     */
+    public FeedShard(int index) {
+        super("feed-shard-" + index);
+        this.index = index;
+        users = new CustomHashMap<>();
+        postHash = new CustomHashMap<>();
+        allPosts = new PriorityQueue<>();
+        mailbox = new ArrayDeque<>();
+        setDaemon(true);
+    }
+
+    /**
+     * Reserves the next slot of the mailbox. Only the coordinating thread reserves slots,
+     * so the slots of every shard are in input order.
+     *
+     * @return The empty slot.
+     */
+    public Slot reserve() {
+        Slot slot = new Slot();
+        synchronized (mailbox) {
+            mailbox.add(slot);
+        }
+        return slot;
+    }
+
+    /**
+     * Fills a reserved slot with its task. May be called from any thread, exactly once per slot.
+     *
+     * @param slot The slot to fill.
+     * @param task The task to run on the shard thread.
+     */
+    public void fill(Slot slot, Runnable task) {
+        synchronized (mailbox) {
+            slot.task = task;
+            mailbox.notify();
+        }
+    }
+
+    /**
+     * Places a task at the end of the mailbox. Only the coordinating thread submits tasks.
+     *
+     * @param task The task to run on the shard thread.
+     */
+    public void submit(Runnable task) {
+        fill(reserve(), task);
+    }
+
+    /**
+     * Submits a task that computes a value on the shard thread.
+     *
+     * @param task The computation to run on the shard thread.
+     * @param <T>  The type of the computed value.
+     * @return A future completed with the value once the shard has run the task.
+     */
+    public <T> CompletableFuture<T> ask(Supplier<T> task) {
+        return after(CompletableFuture.completedFuture(null), reserve(), ignored -> task.get());
+    }
+
+    /**
+     * Fills a reserved slot with a step that runs on its input once the input is known.
+     * The slot is filled even if the input failed, so the shard never waits for it forever,
+     * and the failure is passed on instead of running the step.
+     *
+     * @param input Future input of the step.
+     * @param slot  The slot reserved for the step.
+     * @param step  The computation to run on the shard thread.
+     * @param <A>   The type of the input.
+     * @param <T>   The type of the computed value.
+     * @return A future completed with the value once the shard has run the step.
+     */
+    public <A, T> CompletableFuture<T> after(CompletableFuture<A> input, Slot slot, Function<A, T> step) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        input.whenComplete((value, failure) -> fill(slot, () -> {
+            if (failure != null) {
+                result.completeExceptionally(failure);
+                return;
+            }
+            try {
+                result.complete(step.apply(value));
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        }));
+        return result;
+    }
+
+    /**
+     * Asks the shard thread to stop once every previously reserved slot has run.
+     */
+    public void shutdown() {
+        submit(STOP);
+    }
+
+    /**
+     * Runs the slots of the mailbox one by one until the stop marker is received.
+     */
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                Runnable task;
+                synchronized (mailbox) {
+                    while (mailbox.isEmpty() || mailbox.peek().task == null) {
+                        mailbox.wait();
+                    }
+                    task = mailbox.poll().task;
+                }
+                if (task == STOP) {
+                    return;
+                }
+                task.run();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.function.Function;
+
+/**
+ * Ranks the accounts a user might want to follow by how many of the user's followees already
+ * follow them, and optionally by how many posts they liked together with the user.
+ * Counts are accumulated in a map holding only the candidates that were reached, instead of
+ * materializing the friend-of-friend lists, so a query's memory grows with the candidates it
+ * touches rather than with the number of users ever created.
+ * The best k candidates are kept in a heap bounded to k entries, so the memory used by a query
+ * does not depend on the number of two-hop edges either.
+ */
+public class FollowRecommender {
+
+    /**
+     * A candidate with its counters, ordered so that the worst candidate is the maximum of the heap.
+     */
+    private static class Candidate implements Comparable<Candidate> {
+        User user;
+        int follows;
+        int coLikes;
+
+        /**
+         * Constructs a candidate with zero counters.
+         *
+         * @param user The recommended user.
+         */
+        Candidate(User user) {
+            this.user = user;
+        }
+
+        /**
+         * Compares candidates in reverse order of rank: fewer follows, then fewer co-likes,
+         * then a larger ID is greater.
+         *
+         * @param o The other candidate to compare to.
+         * @return A positive value if this candidate ranks below the other one.
+         */
+        public int compareTo(Candidate o) {
+            if (this.follows != o.follows) {
+                return this.follows < o.follows ? 1 : -1;
+            }
+            if (this.coLikes != o.coLikes) {
+                return this.coLikes < o.coLikes ? 1 : -1;
+            }
+            return this.user.id.compareTo(o.user.id);
+        }
+    }
+
+    /**
+     * Adds one to a counter of a user, creating the user's candidate the first time it is reached.
+     *
+     * @param counted Candidates reached so far, by user ID.
+     * @param coLike  true to count a co-like, false to count a follow.
+     * @param user    The counted user.
+     */
+    private static void count(CustomHashMap<String, Candidate> counted, boolean coLike, User user) {
+        Candidate candidate = counted.get(user.id);
+        if (candidate == null) {
+            candidate = new Candidate(user);
+            counted.put(user.id, candidate);
+        }
+        if (coLike) {
+            candidate.coLikes++;
+        } else {
+            candidate.follows++;
+        }
+    }
+
+    /**
+     * Computes the top recommendations for a user.
+     *
+     * @param user        The user to recommend accounts to.
+     * @param k           Maximum number of recommendations.
+     * @param withCoLikes Whether users who liked the same posts are counted as well.
+     * @param users       Lookup of users by ID, used to resolve the likers of a post.
+     * @return The recommended candidates, best first.
+     */
+    private static ArrayList<Candidate> rank(User user, int k, boolean withCoLikes, Function<String, User> users) {
+        CustomHashMap<String, Candidate> counted = new CustomHashMap<>();
+        user.followedUsers.forEachValue(followee ->
+                followee.followedUsers.forEachValue(candidate -> count(counted, false, candidate)));
+        if (withCoLikes) {
+            user.likedPosts.forEachValue(post -> {
+                for (String likerId : post.likedBy) {
+                    User liker = users.apply(likerId);
+                    if (liker != null) {
+                        count(counted, true, liker);
+                    }
+                }
+            });
+        }
+
+        // Keep the best k candidates, dropping the worst one whenever the heap grows past k
+        PriorityQueue<Candidate> best = new PriorityQueue<>();
+        counted.forEachValue(candidate -> {
+            // A full heap only admits candidates with at least as many follows as its worst entry
+            boolean eligible = k > 0 && (best.size() < k || candidate.follows >= best.getMax().follows);
+            if (eligible && candidate.user != user && user.followedUsers.get(candidate.user.id) != candidate.user) {
+                best.insert(candidate);
+                if (best.size() > k) {
+                    best.removeMax();
+                }
+            }
+        });
+
+        ArrayList<Candidate> ranked = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            ranked.add(best.removeMax());
+        }
+        Collections.reverse(ranked);
+        return ranked;
+    }
+
+    /**
+     * Recommends accounts for a user to follow and formats them for output.
+     *
+     * @param user        The user to recommend accounts to.
+     * @param k           Maximum number of recommendations.
+     * @param withCoLikes Whether users who liked the same posts are counted as well.
+     * @param users       Lookup of users by ID, used to resolve the likers of a post.
+     * @return String listing the recommendations, best first.
+     */
+    public static String recommend(User user, int k, boolean withCoLikes, Function<String, User> users) {
+        ArrayList<Candidate> ranked = rank(user, k, withCoLikes, users);
+        if (ranked.isEmpty()) {
+            return "No recommendations for " + user.id + ".\n";
+        }
+        StringBuilder sb = new StringBuilder("Recommendations for ").append(user.id).append(":\n");
+        for (Candidate candidate : ranked) {
+            sb.append("User ID: ").append(candidate.user.id).append(", Followed by: ").append(candidate.follows);
+            if (withCoLikes) {
+                sb.append(", Co-likes: ").append(candidate.coLikes);
+            }
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+}
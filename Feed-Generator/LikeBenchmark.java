@@ -0,0 +1,80 @@
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Measures toggle_like throughput on a single viral post with many concurrent likers.
+ * Each thread owns a disjoint group of liker IDs and toggles their likes on the same post,
+ * then the final like count is checked against the expected value.
+ * Run with: java LikeBenchmark [maxThreads] [likersPerThread] [rounds]
+ */
+public class LikeBenchmark {
+
+    /**
+     * Runs one measurement with the given number of threads.
+     *
+     * @param threads         Number of concurrent threads.
+     * @param likersPerThread Number of distinct likers owned by each thread.
+     * @param rounds          Number of like/unlike rounds each liker performs.
+     * @return Toggles per second.
+     * @throws InterruptedException if interrupted while waiting for the threads.
+     */
+    private static double measure(int threads, int likersPerThread, int rounds) throws InterruptedException {
+        Post post = new Post("viral", "content", new User("author"));
+        String[][] likers = new String[threads][likersPerThread];
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < likersPerThread; i++) {
+                likers[t][i] = "user" + t + "_" + i;
+            }
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            String[] ids = likers[t];
+            new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                // An odd number of toggles per liker leaves every liker liking the post
+                for (int r = 0; r < 2 * rounds + 1; r++) {
+                    for (String id : ids) {
+                        post.toggleLike(id);
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+
+        int expected = threads * likersPerThread;
+        if (post.likeCount() != expected || post.likes != expected || post.likedBy.size() != expected) {
+            throw new IllegalStateException("Lost like updates: expected " + expected + ", counted " + post.likeCount()
+                    + ", cached " + post.likes + ", likers " + post.likedBy.size());
+        }
+        long toggles = (long) expected * (2 * rounds + 1);
+        return toggles * 1e9 / elapsed;
+    }
+
+    /**
+     * Prints the toggle throughput for thread counts doubling up to the maximum.
+     *
+     * @param args Optional maximum thread count, likers per thread and rounds.
+     * @throws InterruptedException if interrupted while waiting for the threads.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int likersPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        measure(maxThreads, likersPerThread, rounds / 10 + 1); // Warm up
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            double rate = measure(threads, likersPerThread, rounds);
+            System.out.printf("%3d threads, %6d likers: %,.0f toggles/s%n", threads, threads * likersPerThread, rate);
+        }
+    }
+}
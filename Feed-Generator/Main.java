@@ -1,5 +1,8 @@
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Scanner;
+import java.util.function.Function;
 
 /**
  * Main class that manages user interactions, posts, and social media-like functionality.
@@ -37,7 +40,7 @@ public class Main {
         if (user1 == null || user2 == null || user1.followedUsers.containsKey(userId2) || user1 == user2) {
             return "Some error occurred in follow_user.";
         }
-        user1.followedUsers.put(user2.id, user2);
+        user1.follow(user2);
         return userId1 + " followed " + userId2 + ".";
     }
 
@@ -56,7 +59,7 @@ public class Main {
         if (user1 == null || user2 == null || user1.followedUsers.get(userId2) == null) {
             return "Some error occurred in unfollow_user.";
         }
-        user1.followedUsers.remove(userId2);
+        user1.unfollow(userId2);
         return userId1 + " unfollowed " + userId2 + ".";
     }
 
@@ -73,6 +76,24 @@ public class Main {
      */
     public static String createPost(CustomHashMap<String, User> customHashMap, PriorityQueue<Post> priorityQueue,
                                     CustomHashMap<String, Post> postHash, String userid, String postID, String content) {
+        return createPost(customHashMap, priorityQueue, postHash, userid, postID, content, null);
+    }
+
+    /**
+     * Creates a post by a user and registers it with the retention policy, if there is one.
+     *
+     * @param customHashMap HashMap containing all users.
+     * @param priorityQueue Queue to prioritize posts.
+     * @param postHash      HashMap storing posts by ID.
+     * @param userid        ID of the user creating the post.
+     * @param postID        ID of the post.
+     * @param content       Content of the post.
+     * @param retention     Retention policy tracking the post, or null if posts are kept forever.
+     * @return Status message indicating success or failure.
+     */
+    public static String createPost(CustomHashMap<String, User> customHashMap, PriorityQueue<Post> priorityQueue,
+                                    CustomHashMap<String, Post> postHash, String userid, String postID, String content,
+                                    PostRetention retention) {
         User user = customHashMap.get(userid);
         Post post = new Post(postID, content, user);
         // Check for null user or duplicate post ID
@@ -82,9 +103,11 @@ public class Main {
         if (postHash.put(postID, post) == -1) {
             return "Some error occurred in create_post.";
         }
-        postHash.put(postID, post);
         priorityQueue.insert(post);
-        user.posts.add(post);
+        user.addPost(post);
+        if (retention != null) {
+            retention.postCreated(post);
+        }
         return userid + " created a post with Id " + postID + ".";
     }
 
@@ -105,7 +128,7 @@ public class Main {
         if (user == null || post == null) {
             return "Some error occurred in see_post.";
         }
-        user.seenPost.put(postId, post);
+        user.markSeen(post);
         return userId + " saw " + postId + ".";
     }
 
@@ -126,10 +149,8 @@ public class Main {
         if (user1 == null || user2 == null) {
             return "Some error occurred in see_all_posts_from_user.";
         }
-        // Add all posts from user2 to user1's seen posts
-        for (Post i : user2.posts) {
-            user1.seenPost.put(i.postId, i);
-        }
+        // Every post user2 has created so far is now seen by user1
+        user1.seeAllPostsUpTo(user2, user2.postCount);
         return userId1 + " saw all posts of " + userId2 + ".";
     }
     /**
@@ -150,18 +171,99 @@ public class Main {
         if (user1 == null || post == null) {
             return "Some error occurred in toggle_like.";
         }
-        if (post.likedBy.containsKey(user)) {
-            post.likedBy.remove(user);
-            post.likes--;
+        if (!post.toggleLike(user)) {
+            user1.removeLikedPost(postId);
             return user + " unliked " + postId + ".";
         }
-        post.likedBy.put(user, user1);
-        post.likes++;
+        user1.addLikedPost(post);
         see_post(allUserHM, postHash, user, postId);
         return user + " liked " + postId + ".";
     }
 
 
+    /**
+     * Deletes a user together with everything that refers to it.
+     *
+     * @param allUserHM HashMap containing all users.
+     * @param allPosts  Priority queue containing all posts.
+     * @param postHash  HashMap containing all posts.
+     * @param userId    ID of the user to delete.
+     * @param retention Retention policy for posts, or null if posts are kept forever.
+     * @return Status message indicating success or failure.
+     */
+    public static String delete_user(CustomHashMap<String, User> allUserHM, PriorityQueue<Post> allPosts,
+                                     CustomHashMap<String, Post> postHash, String userId, PostRetention retention) {
+        User user = allUserHM.get(userId);
+        // Check for null user
+        if (user == null) {
+            return "Some error occurred in delete_user.";
+        }
+        removeUserRelations(user, allUserHM::get, postHash, allPosts, retention);
+        allUserHM.remove(userId);
+        return "Deleted user with Id " + userId + ".";
+    }
+
+    /**
+     * Removes every relation between a user and the rest of the system, following the reverse
+     * indexes so that only the affected users and posts are visited.
+     * The user's posts disappear from postHash, from the global ranking, from the feeds of former
+     * followers and from the seen and liked records of other users, and the user's own likes are withdrawn.
+     * The posts stay in the global ranking as removed entries and leave it with a later bulk purge,
+     * done by the retention policy if there is one and otherwise once removed posts make up half of it.
+     *
+     * @param user      The user being deleted.
+     * @param users     Lookup from user ID to user.
+     * @param postHash  HashMap containing the user's posts.
+     * @param allPosts  Priority queue containing the user's posts.
+     * @param retention Retention policy for posts, or null if posts are kept forever.
+     */
+    public static void removeUserRelations(User user, Function<String, User> users,
+                                           CustomHashMap<String, Post> postHash, PriorityQueue<Post> allPosts,
+                                           PostRetention retention) {
+        String userId = user.id;
+
+        // Followers stop following the user, which also drops its posts from their feeds
+        for (User follower : user.followers.values()) {
+            follower.followedUsers.remove(userId);
+        }
+        for (User followed : user.followedUsers.values()) {
+            followed.removeFollower(userId);
+        }
+
+        // Drop the watermarks others hold on the user and the ones the user holds
+        for (User viewer : user.bulkViewers.values()) {
+            viewer.seenWatermark.remove(userId);
+        }
+        for (String authorId : user.seenWatermark.keys()) {
+            users.apply(authorId).removeBulkViewer(userId);
+        }
+
+        // Withdraw the user's likes and seen records from other users' posts
+        for (Post liked : user.likedPosts.values()) {
+            liked.unlike(userId);
+        }
+        for (Post seen : user.seenPost.values()) {
+            seen.removeViewer(userId);
+        }
+
+        // Remove the user's posts and every record other users keep about them
+        for (Post post : user.posts) {
+            post.removed = true;
+            postHash.remove(post.postId);
+            for (User viewer : post.seenBy.values()) {
+                viewer.seenPost.remove(post.postId);
+            }
+            for (String likerId : post.likedBy) {
+                users.apply(likerId).removeLikedPost(post.postId);
+            }
+        }
+        if (retention != null) {
+            retention.postsDeleted(user);
+        } else if (!user.posts.isEmpty()) {
+            allPosts.removeLazily(user.posts.size(), post -> post.removed);
+        }
+    }
+
     /**
      * Generates a feed of posts for a user.
      *
@@ -189,7 +291,7 @@ public class Main {
         while (number > 0 && !postPriorityQueue.isEmpty()) {
             Post k = postPriorityQueue.removeMax();
 
-            if (user.seenPost.containsKey(k.postId) || user.posts.contains(k)) {
+            if (user.hasSeen(k) || user.posts.contains(k)) {
                 continue;
             } else {
                 user.Feed.insert(k);
@@ -203,6 +305,64 @@ public class Main {
         return string;
     }
 
+    /**
+     * Generates the feeds of several users at once.
+     * The posts of each followed author are sorted once and shared by every user following
+     * that author, and each feed is a merge of these sorted runs, so the work grows with
+     * the number of distinct authors instead of the total number of followed users.
+     *
+     * @param allUserHM HashMap containing all users.
+     * @param userIds   IDs of the users requesting a feed.
+     * @param num       Number of posts to fetch for each feed.
+     * @return String representing the generated feeds, in the order of userIds.
+     */
+    public static String generate_feed_batch(CustomHashMap<String, User> allUserHM, String[] userIds, int num) {
+        CustomHashMap<String, ArrayList<Post>> sortedPosts = new CustomHashMap<>(); // Sorted posts per author
+        StringBuilder sb = new StringBuilder();
+
+        for (String userId : userIds) {
+            User user = allUserHM.get(userId);
+            if (user == null) {
+                sb.append("Some error occurred in generate_feed.\n");
+                continue;
+            }
+
+            // Start one run per followed author with posts, sorting each author only once
+            PriorityQueue<PostRun> runs = new PriorityQueue<>();
+            for (User followedUser : user.followedUsers.values()) {
+                ArrayList<Post> sorted = sortedPosts.get(followedUser.id);
+                if (sorted == null) {
+                    sorted = PostRun.sortedCopy(followedUser.posts);
+                    sortedPosts.put(followedUser.id, sorted);
+                }
+                if (!sorted.isEmpty()) {
+                    runs.insert(new PostRun(sorted));
+                }
+            }
+
+            user.Feed = new PriorityQueue<>();
+            sb.append("Feed for ").append(userId).append(":\n");
+            int number = num;
+            while (number > 0 && !runs.isEmpty()) {
+                PostRun run = runs.removeMax();
+                Post k = run.head();
+                if (run.advance()) {
+                    runs.insert(run);
+                }
+                if (!user.hasSeen(k) && k.creator != user) {
+                    user.Feed.insert(k);
+                    sb.append("Post ID: ").append(k.postId).append(", Author: ").append(k.creator.id)
+                            .append(", Likes: ").append(k.likes).append("\n");
+                    number--;
+                }
+            }
+            if (number > 0) {
+                sb.append("No more posts available for ").append(userId).append(".\n");
+            }
+        }
+        return sb.toString();
+    }
+
     /**
      * Allows a user to scroll through their feed and interact with posts.
      *
@@ -231,22 +391,23 @@ public class Main {
             }
             if (string[i].equals("0")) {
                 Post k = user.Feed.removeMax();
-                if (user.seenPost.containsKey(k.postId) || user.posts.contains(k)) {
+                if (user.hasSeen(k) || user.posts.contains(k)) {
                     i--;
                     continue;
                 }
-                user.seenPost.put(k.postId, k);
+                user.markSeen(k);
                 forReturn = forReturn + userID + " saw " + k.postId + " while scrolling.\n";
             }
             if (string[i].equals("1")) {
                 Post s = user.Feed.removeMax();
-                if (user.seenPost.containsKey(s.postId) || user.posts.contains(s)) {
+                if (user.hasSeen(s) || user.posts.contains(s)) {
                     i--;
                     continue;
                 }
-                user.seenPost.put(s.postId, s);
-                s.likes++;
-                s.likedBy.put(user.id, user);
+                user.markSeen(s);
+                if (s.like(user.id)) {
+                    user.addLikedPost(s);
+                }
                 forReturn = forReturn + userID + " saw " + s.postId + " while scrolling and clicked the like button.\n";
             }
         }
@@ -275,27 +436,151 @@ public class Main {
 
         forReturn = forReturn + "Sorting " + user.id + "'s posts:\n";
 
-        // Sort the user's posts using the quick sort method
-        SortArrayList.quickSort(user.posts);
+        // Sort a copy of the user's posts using the quick sort method, the posts list keeps its positions
+        ArrayList<Post> sorted = PostRun.sortedCopy(user.posts);
 
         // Append the sorted posts to the output string
-        for (int i = user.posts.size() - 1; i >= 0; i--) {
-            forReturn = forReturn + user.posts.get(i).postId + ", Likes: " + user.posts.get(i).likes + "\n";
+        for (int i = sorted.size() - 1; i >= 0; i--) {
+            forReturn = forReturn + sorted.get(i).postId + ", Likes: " + sorted.get(i).likes + "\n";
         }
         return forReturn;
     }
 
+    /**
+     * Recommends accounts for a user to follow, ranked by how many of the user's followees follow them.
+     *
+     * @param allUserHM   HashMap containing all users.
+     * @param userId      ID of the user asking for recommendations.
+     * @param k           Maximum number of recommendations.
+     * @param withCoLikes Whether users who liked the same posts are counted as well.
+     * @return String listing the recommendations, or an error message if the user does not exist.
+     */
+    public static String recommend_follows(CustomHashMap<String, User> allUserHM, String userId, int k,
+                                           boolean withCoLikes) {
+        User user = allUserHM.get(userId);
+
+        // Check if the user exists
+        if (user == null) {
+            return "Some error occurred in recommend_follows.\n";
+        }
+        return FollowRecommender.recommend(user, k, withCoLikes, allUserHM::get);
+    }
+
+    /**
+     * Executes a single tokenized command against the given state, expiring and compacting
+     * posts around it when a retention policy is given.
+     *
+     * @param array     Tokens of the command line, starting with the command name.
+     * @param allUserHM HashMap containing all users.
+     * @param allPosts  Priority queue containing all posts.
+     * @param postHash  HashMap storing posts by ID.
+     * @param retention Retention policy for posts, or null if posts are kept forever.
+     * @return The output of the command including its trailing newline, or null for unknown commands.
+     */
+    public static String executeCommand(String[] array, CustomHashMap<String, User> allUserHM,
+                                        PriorityQueue<Post> allPosts, CustomHashMap<String, Post> postHash,
+                                        PostRetention retention) {
+        if (retention == null) {
+            return dispatchCommand(array, allUserHM, allPosts, postHash, null);
+        }
+        retention.beginCommand();
+        String result = dispatchCommand(array, allUserHM, allPosts, postHash, retention);
+        retention.compactSome();
+        return result;
+    }
+
+    /**
+     * Calls the handler of a single tokenized command.
+     *
+     * @param array     Tokens of the command line, starting with the command name.
+     * @param allUserHM HashMap containing all users.
+     * @param allPosts  Priority queue containing all posts.
+     * @param postHash  HashMap storing posts by ID.
+     * @param retention Retention policy for posts, or null if posts are kept forever.
+     * @return The output of the command including its trailing newline, or null for unknown commands.
+     */
+    private static String dispatchCommand(String[] array, CustomHashMap<String, User> allUserHM,
+                                          PriorityQueue<Post> allPosts, CustomHashMap<String, Post> postHash,
+                                          PostRetention retention) {
+        if (array.length == 0 || array[0].trim().isEmpty()) {
+            return "Invalid command: Line is empty or invalid.\n";
+        } else if (array[0].equals("create_user")) {
+            return createUser(allUserHM, array[1]) + "\n";
+        } else if (array[0].equals("follow_user")) {
+            return follow_user(allUserHM, array[1], array[2]) + "\n";
+        } else if (array[0].equals("unfollow_user")) {
+            return unfollow_user(allUserHM, array[1], array[2]) + "\n";
+        } else if (array[0].equals("create_post")) {
+            return createPost(allUserHM, allPosts, postHash, array[1], array[2], array[3], retention) + "\n";
+        } else if (array[0].equals("see_post")) {
+            return see_post(allUserHM, postHash, array[1], array[2]) + "\n";
+        } else if (array[0].equals("toggle_like")) {
+            return toggle_like(allPosts, allUserHM, postHash, array[1], array[2]) + "\n";
+        } else if (array[0].equals("see_all_posts_from_user")) {
+            return see_all_post(allUserHM, postHash, array[1], array[2]) + "\n";
+        } else if (array[0].equals("delete_user")) {
+            return delete_user(allUserHM, allPosts, postHash, array[1], retention) + "\n";
+        } else if (array[0].equals("generate_feed")) {
+            return generate_feed(allUserHM, array[1], Integer.parseInt(array[2]));
+        } else if (array[0].equals("generate_feed_batch")) {
+            // generate_feed_batch <num> <userId>...
+            return generate_feed_batch(allUserHM, Arrays.copyOfRange(array, 2, array.length), Integer.parseInt(array[1]));
+        } else if (array[0].equals("scroll_through_feed")) {
+            return scrollFeed(allUserHM, array[1], Integer.parseInt(array[2]), array);
+        } else if (array[0].equals("sort_posts")) {
+            return sort_posts(allUserHM, array[1]);
+        } else if (array[0].equals("recommend_follows")) {
+            // recommend_follows <userId> <k> [colikes]
+            return recommend_follows(allUserHM, array[1], Integer.parseInt(array[2]),
+                    array.length > 3 && array[3].equals("colikes"));
+        }
+        return null; // Unknown commands produce no output
+    }
+
     /**
      * Main method to run the program, process commands, and manage user interactions.
      *
-     * @param args Command-line arguments (not used).
+     * @param args Command-line arguments: input file, output file, then optionally a mode, which is
+     *             either "pipeline" or the number of shards to run on, and the retention options
+     *             --max-post-age=TICKS, --max-posts-per-author=COUNT and --compaction-batch=POSTS,
+     *             where a batch of 0 compacts every expired post right after its command.
      * @throws IOException if file operations fail.
      */
     public static void main(String[] args) throws IOException {
-        double time = System.currentTimeMillis();
+        String mode = null;
+        int maxPostAge = 0;
+        int maxPostsPerAuthor = 0;
+        int compactionBatch = PostRetention.DEFAULT_COMPACTION_BATCH;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].startsWith("--max-post-age=")) {
+                maxPostAge = Integer.parseInt(args[i].substring("--max-post-age=".length()));
+            } else if (args[i].startsWith("--max-posts-per-author=")) {
+                maxPostsPerAuthor = Integer.parseInt(args[i].substring("--max-posts-per-author=".length()));
+            } else if (args[i].startsWith("--compaction-batch=")) {
+                compactionBatch = Integer.parseInt(args[i].substring("--compaction-batch=".length()));
+            } else {
+                mode = args[i];
+            }
+        }
+
+        // Run the staged pipeline when asked to
+        if ("pipeline".equals(mode)) {
+            CommandPipeline.run(new File(args[0]), new File(args[1]), maxPostAge, maxPostsPerAuthor, compactionBatch);
+            return;
+        }
+        // With a shard count, run the commands on the sharded engine instead
+        if (mode != null) {
+            if (maxPostAge > 0 || maxPostsPerAuthor > 0) {
+                throw new IllegalArgumentException("Post retention is not supported by the sharded engine");
+            }
+            ShardedFeedEngine.run(new File(args[0]), new File(args[1]), Integer.parseInt(mode));
+            return;
+        }
         CustomHashMap<String, User> allUserHM = new CustomHashMap<>();
         PriorityQueue<Post> allPosts = new PriorityQueue<>();
         CustomHashMap<String, Post> postHash = new CustomHashMap<>();
+        PostRetention retention = PostRetention.of(allUserHM, postHash, allPosts, maxPostAge, maxPostsPerAuthor,
+                compactionBatch);
 
         File fh = new File(args[0]);
         File file1 = new File(args[1]);
@@ -304,38 +589,9 @@ public class Main {
 
         while (scanner.hasNextLine()) {
             String[] array = scanner.nextLine().split(" ");
-            if (array.length == 0 || array[0].trim().isEmpty()) {
-                writer.write("Invalid command: Line is empty or invalid.\n");
-            } else if (array[0].equals("create_user")) {
-                String k = createUser(allUserHM, array[1]);
-                writer.write(k + "\n");
-            } else if (array[0].equals("follow_user")) {
-                String x = follow_user(allUserHM, array[1], array[2]);
-                writer.write(x + "\n");
-            } else if (array[0].equals("unfollow_user")) {
-                String f = unfollow_user(allUserHM, array[1], array[2]);
-                writer.write(f + "\n");
-            } else if (array[0].equals("create_post")) {
-                String k = createPost(allUserHM, allPosts, postHash, array[1], array[2], array[3]);
-                writer.write(k + "\n");
-            } else if (array[0].equals("see_post")) {
-                String z = see_post(allUserHM, postHash, array[1], array[2]);
-                writer.write(z + "\n");
-            } else if (array[0].equals("toggle_like")) {
-                String toggle = toggle_like(allPosts, allUserHM, postHash, array[1], array[2]);
-                writer.write(toggle + "\n");
-            } else if (array[0].equals("see_all_posts_from_user")) {
-                String seeAll = see_all_post(allUserHM, postHash, array[1], array[2]);
-                writer.write(seeAll + "\n");
-            } else if (array[0].equals("generate_feed")) {
-                String generatefeed = generate_feed(allUserHM, array[1], Integer.parseInt(array[2]));
-                writer.write(generatefeed);
-            } else if (array[0].equals("scroll_through_feed")) {
-                String scroll = scrollFeed(allUserHM, array[1], Integer.parseInt(array[2]), array);
-                writer.write(scroll);
-            } else if (array[0].equals("sort_posts")) {
-                String sort = sort_posts(allUserHM, array[1]);
-                writer.write(sort);
+            String result = executeCommand(array, allUserHM, allPosts, postHash, retention);
+            if (result != null) {
+                writer.write(result);
             }
         }
         writer.close();
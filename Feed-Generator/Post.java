@@ -1,17 +1,24 @@
-import java.util.stream.Stream;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Represents a social media post created by a user.
  * A post includes a unique ID, content, a creator, and a record of likes.
  * Implements the Comparable interface for sorting posts by likes.
+ * Likes may be toggled from several threads at once: the count is a striped counter and the
+ * likers are kept in a concurrent set, while the likes field caches the count for ranking.
  */
 public class Post implements Comparable<Post> {
 
     // Unique identifier for the post
     String postId;
 
-    // Number of likes on the post
-    int likes;
+    // Number of likes on the post, cached from likeCounter and eventually consistent under concurrent likes
+    volatile int likes;
+
+    // Striped counter holding the exact number of likes
+    private final LongAdder likeCounter;
 
     // Content of the post
     String content;
@@ -19,12 +26,27 @@ public class Post implements Comparable<Post> {
     // User who created the post
     User creator;
 
-    // CustomHashMap of users who liked the post
-    CustomHashMap<String, User> likedBy;
+    // Position of the post among its creator's posts, in creation order
+    int ordinal;
+
+    // Index of the post in its creator's posts list
+    int position;
+
+    // Command tick at which the post was created, set when post retention is enabled
+    long createdTick;
+
+    // Whether the post was expired or deleted and is no longer reachable
+    boolean removed;
+
+    // Concurrent set of IDs of users who liked the post
+    Set<String> likedBy;
+
+    // Users who saw this post individually, reverse index of User.seenPost, only touched by the thread owning the post
+    CustomHashMap<String, User> seenBy;
 
     /**
      * Constructs a new Post with the given ID, content, and creator.
-     * Initializes the likedBy map to keep track of users who like the post.
+     * Initializes the likedBy set to keep track of users who like the post.
      *
      * @param postId  The unique identifier for the post.
      * @param content The content of the post.
@@ -33,10 +55,109 @@ public class Post implements Comparable<Post> {
     public Post(String postId, String content, User creator) {
         this.postId = postId;
         this.content = content;
-        this.likedBy = new CustomHashMap<>();
+        this.likedBy = ConcurrentHashMap.newKeySet();
+        this.likeCounter = new LongAdder();
+        this.seenBy = CustomHashMap.emptyMap();
         this.creator = creator;
     }
 
+    /**
+     * Adds a like from the given user if the user has not liked the post yet.
+     *
+     * @param userId ID of the user liking the post.
+     * @return true if the like was added, false if the user had already liked the post.
+     */
+    public boolean like(String userId) {
+        if (!likedBy.add(userId)) {
+            return false;
+        }
+        likeCounter.increment();
+        refreshLikes();
+        return true;
+    }
+
+    /**
+     * Removes the like of the given user if there is one.
+     *
+     * @param userId ID of the user unliking the post.
+     * @return true if the like was removed, false if the user had not liked the post.
+     */
+    public boolean unlike(String userId) {
+        if (!likedBy.remove(userId)) {
+            return false;
+        }
+        likeCounter.decrement();
+        refreshLikes();
+        return true;
+    }
+
+    /**
+     * Likes the post for the given user, or removes the like if the user already liked it.
+     * Each toggle either removes or adds the user's entry in one atomic set operation. When a
+     * concurrent toggle of the same user changes the entry in between, the toggle retries, so
+     * concurrent toggles alternate and each reports the state it produced.
+     *
+     * @param userId ID of the user toggling the like.
+     * @return true if the post is now liked by the user, false if it was unliked.
+     */
+    public boolean toggleLike(String userId) {
+        while (true) {
+            if (likedBy.remove(userId)) {
+                likeCounter.decrement();
+                refreshLikes();
+                return false;
+            }
+            if (likedBy.add(userId)) {
+                likeCounter.increment();
+                refreshLikes();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Records that the given user has seen this post individually.
+     *
+     * @param viewer The user who saw the post.
+     */
+    void addViewer(User viewer) {
+        if (seenBy == CustomHashMap.<String, User>emptyMap()) {
+            seenBy = new CustomHashMap<>();
+        }
+        seenBy.put(viewer.id, viewer);
+    }
+
+    /**
+     * Removes a user from the viewers of this post.
+     *
+     * @param viewerId ID of the viewer.
+     */
+    void removeViewer(String viewerId) {
+        seenBy.remove(viewerId);
+    }
+
+    /**
+     * Returns the exact number of likes, summing the striped counter.
+     *
+     * @return The number of likes on the post.
+     */
+    public int likeCount() {
+        return (int) likeCounter.sum();
+    }
+
+    /**
+     * Copies the counter into the cached like count used for ranking.
+     * A writer that raced with another like rewrites the cache until it matches the counter,
+     * so once likes stop changing, the cache holds the exact count.
+     */
+    private void refreshLikes() {
+        int sum;
+        do {
+            sum = (int) likeCounter.sum();
+            likes = sum;
+        } while (sum != likeCounter.sum());
+    }
+
     /**
      * Compares this post to another post for ordering.
      * Comparison is based on the number of likes. In case of a tie, the postId is used.
@@ -0,0 +1,204 @@
+import java.util.ArrayDeque;
+
+/**
+ * Bounds the memory of a long-running engine by expiring posts, either once they are older
+ * than a number of command ticks or once their author has more than a given number of newer posts.
+ * An expiring post is immediately removed from postHash and from its author's posts, so it stops
+ * showing up anywhere. The records other users keep about it (seen and liked entries) are
+ * compacted a few posts at a time after each command, so no single command pays for a large purge.
+ * Every post leaves an author's live posts oldest first, so the per-author cap finds the oldest
+ * post at the head of a queue. Posts removed by the cap or by delete_user before they age out
+ * are dropped from the age queue in bulk, like removed posts are dropped from allPosts.
+ */
+public class PostRetention {
+
+    static final int DEFAULT_COMPACTION_BATCH = 4; // Default number of posts compacted per command
+
+    private final int maxAge; // Maximum age of a post in command ticks, 0 for no age limit
+    private final int maxPostsPerAuthor; // Maximum number of live posts per author, 0 for no cap
+    private final int compactionBatch; // Number of expired posts compacted after each command, 0 for all
+
+    private final CustomHashMap<String, User> allUserHM; // All users, to resolve likers by ID
+    private final CustomHashMap<String, Post> postHash; // All live posts by ID
+    private final PriorityQueue<Post> allPosts; // Global post queue, purged of removed posts in bulk
+
+    private final ArrayDeque<Post> byAge = new ArrayDeque<>(); // Posts in creation order, for the age limit
+    private final CustomHashMap<String, ArrayDeque<Post>> liveByAuthor = new CustomHashMap<>(); // Live posts of each author in creation order, for the cap
+    private final ArrayDeque<Post> expired = new ArrayDeque<>(); // Expired posts waiting for compaction
+
+    private long tick; // Number of commands started so far
+    private int removedSincePurge; // Posts expired or deleted since allPosts was last purged
+    private int removedInByAge; // Posts in byAge that were removed before aging out
+
+    /**
+     * Constructs a retention policy over the given engine state.
+     *
+     * @param allUserHM         HashMap containing all users.
+     * @param postHash          HashMap storing posts by ID.
+     * @param allPosts          Priority queue containing all posts.
+     * @param maxAge            Maximum age of a post in command ticks, or 0 for no age limit.
+     * @param maxPostsPerAuthor Maximum number of live posts per author, or 0 for no cap.
+     * @param compactionBatch   Number of expired posts compacted after each command, or 0 to compact all of them.
+     */
+    public PostRetention(CustomHashMap<String, User> allUserHM, CustomHashMap<String, Post> postHash,
+                         PriorityQueue<Post> allPosts, int maxAge, int maxPostsPerAuthor, int compactionBatch) {
+        this.allUserHM = allUserHM;
+        this.postHash = postHash;
+        this.allPosts = allPosts;
+        this.maxAge = maxAge;
+        this.maxPostsPerAuthor = maxPostsPerAuthor;
+        this.compactionBatch = compactionBatch;
+    }
+
+    /**
+     * Creates a retention policy, if any limit is set.
+     *
+     * @param allUserHM         HashMap containing all users.
+     * @param postHash          HashMap storing posts by ID.
+     * @param allPosts          Priority queue containing all posts.
+     * @param maxAge            Maximum age of a post in command ticks, or 0 for no age limit.
+     * @param maxPostsPerAuthor Maximum number of live posts per author, or 0 for no cap.
+     * @param compactionBatch   Number of expired posts compacted after each command, or 0 to compact all of them.
+     * @return The retention policy, or null if both limits are 0.
+     */
+    public static PostRetention of(CustomHashMap<String, User> allUserHM, CustomHashMap<String, Post> postHash,
+                                   PriorityQueue<Post> allPosts, int maxAge, int maxPostsPerAuthor,
+                                   int compactionBatch) {
+        if (maxAge <= 0 && maxPostsPerAuthor <= 0) {
+            return null;
+        }
+        return new PostRetention(allUserHM, postHash, allPosts, maxAge, maxPostsPerAuthor, compactionBatch);
+    }
+
+    /**
+     * Advances the clock by one command and expires every post that became too old.
+     */
+    public void beginCommand() {
+        tick++;
+        while (maxAge > 0 && !byAge.isEmpty() && tick - byAge.peek().createdTick > maxAge) {
+            Post post = byAge.poll();
+            if (post.removed) {
+                removedInByAge--; // Already removed by the cap or by delete_user
+                continue;
+            }
+            if (maxPostsPerAuthor > 0) {
+                pollLive(post.creator.id); // The author's oldest live post is this one
+            }
+            expire(post);
+        }
+    }
+
+    /**
+     * Registers a newly created post and enforces the per-author cap.
+     *
+     * @param post The post that was just created.
+     */
+    public void postCreated(Post post) {
+        post.createdTick = tick;
+        if (maxAge > 0) {
+            byAge.add(post);
+        }
+        if (maxPostsPerAuthor > 0) {
+            String authorId = post.creator.id;
+            ArrayDeque<Post> live = liveByAuthor.get(authorId);
+            if (live == null) {
+                live = new ArrayDeque<>();
+                liveByAuthor.put(authorId, live);
+            }
+            live.add(post);
+            if (live.size() > maxPostsPerAuthor) {
+                expire(pollLive(authorId));
+                if (maxAge > 0) {
+                    removedInByAge++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Forgets the live posts of a user removed by delete_user and counts them towards the
+     * next bulk purges of allPosts and of the age queue.
+     *
+     * @param user The deleted user, whose posts are already flagged as removed.
+     */
+    public void postsDeleted(User user) {
+        int count = user.posts.size();
+        removedSincePurge += count;
+        if (maxAge > 0) {
+            removedInByAge += count;
+        }
+        if (maxPostsPerAuthor > 0) {
+            liveByAuthor.remove(user.id);
+        }
+    }
+
+    /**
+     * Compacts up to one batch of expired posts, then purges allPosts and the age queue once
+     * removed posts make up half of them. Meant to run between commands.
+     */
+    public void compactSome() {
+        for (int i = 0; (compactionBatch == 0 || i < compactionBatch) && !expired.isEmpty(); i++) {
+            compact(expired.poll());
+        }
+        if (removedSincePurge > 0 && removedSincePurge * 2 >= allPosts.size()) {
+            allPosts.removeIf(post -> post.removed);
+            removedSincePurge = 0;
+        }
+        if (removedInByAge > 0 && removedInByAge * 2 >= byAge.size()) {
+            byAge.removeIf(post -> post.removed);
+            removedInByAge = 0;
+        }
+    }
+
+    /**
+     * Removes the oldest live post of an author from the author's queue.
+     *
+     * @param authorId ID of the author.
+     * @return The removed post.
+     */
+    private Post pollLive(String authorId) {
+        ArrayDeque<Post> live = liveByAuthor.get(authorId);
+        Post oldest = live.poll();
+        if (live.isEmpty()) {
+            liveByAuthor.remove(authorId);
+        }
+        return oldest;
+    }
+
+    /**
+     * Makes a post unreachable and queues it for compaction.
+     *
+     * @param post The post to expire.
+     */
+    private void expire(Post post) {
+        post.removed = true;
+        if (postHash.get(post.postId) == post) {
+            postHash.remove(post.postId);
+        }
+        post.creator.removePost(post);
+        expired.add(post);
+        removedSincePurge++;
+    }
+
+    /**
+     * Drops the seen and liked records other users keep about an expired post.
+     * Entries are only removed while they still refer to this post, since a new post may reuse its ID.
+     *
+     * @param post The expired post.
+     */
+    private void compact(Post post) {
+        for (User viewer : post.seenBy.values()) {
+            if (viewer.seenPost.get(post.postId) == post) {
+                viewer.seenPost.remove(post.postId);
+            }
+        }
+        post.seenBy = CustomHashMap.emptyMap();
+        for (String likerId : post.likedBy) {
+            User liker = allUserHM.get(likerId);
+            if (liker != null && liker.likedPosts.get(post.postId) == post) {
+                liker.removeLikedPost(post.postId);
+            }
+        }
+        post.likedBy.clear();
+    }
+}
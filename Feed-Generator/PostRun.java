@@ -0,0 +1,67 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A cursor over one author's posts sorted by likes, used to merge the posts of several
+ * authors without putting every post into a heap.
+ * Runs of the same author can share one sorted list, since cursors never modify it.
+ */
+public class PostRun implements Comparable<PostRun> {
+
+    // Posts of one author in ascending order, read from the end
+    ArrayList<Post> sorted;
+
+    // Index of the current post, -1 when the run is exhausted
+    int index;
+
+    /**
+     * Constructs a cursor positioned at the most liked post of the sorted list.
+     *
+     * @param sorted Posts of one author in ascending order of Post.compareTo.
+     */
+    public PostRun(ArrayList<Post> sorted) {
+        this.sorted = sorted;
+        this.index = sorted.size() - 1;
+    }
+
+    /**
+     * Sorts a copy of an author's posts so that it can be shared between runs.
+     *
+     * @param posts Posts of one author.
+     * @return A new list with the posts in ascending order.
+     */
+    public static ArrayList<Post> sortedCopy(List<Post> posts) {
+        ArrayList<Post> sorted = new ArrayList<>(posts);
+        SortArrayList.quickSort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Returns the current post of the run.
+     *
+     * @return The most liked post not yet consumed.
+     */
+    public Post head() {
+        return sorted.get(index);
+    }
+
+    /**
+     * Moves the cursor to the next less liked post.
+     *
+     * @return true if the run still has posts, false otherwise.
+     */
+    public boolean advance() {
+        index--;
+        return index >= 0;
+    }
+
+    /**
+     * Compares runs by their current posts.
+     *
+     * @param o The other run to compare to.
+     * @return The result of comparing the current posts.
+     */
+    public int compareTo(PostRun o) {
+        return head().compareTo(o.head());
+    }
+}
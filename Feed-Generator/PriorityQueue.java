@@ -1,4 +1,5 @@
 import java.util.ArrayList;
+import java.util.function.Predicate;
 
 /**
  * A generic Priority Queue implemented using a max-heap.
@@ -11,6 +12,9 @@ public class PriorityQueue<T extends Comparable<? super T>> {
     // Internal representation of the heap
     public ArrayList<T> heap;
 
+    // Number of elements known to be stale but still in the heap, see removeLazily
+    private int staleCount;
+
     /**
      * Constructs an empty PriorityQueue.
      */
@@ -25,6 +29,7 @@ public class PriorityQueue<T extends Comparable<? super T>> {
      */
     public PriorityQueue(PriorityQueue<T> other) {
         heap = new ArrayList<>(other.heap); // Copy the internal array
+        staleCount = other.staleCount;
     }
 
     /**
@@ -122,6 +127,37 @@ public class PriorityQueue<T extends Comparable<? super T>> {
         }
     }
 
+    /**
+     * Removes every element matching the filter and rebuilds the heap bottom-up in linear time.
+     *
+     * @param filter Predicate selecting the elements to remove.
+     * @return The number of removed elements.
+     */
+    public int removeIf(Predicate<? super T> filter) {
+        int before = heap.size();
+        heap.removeIf(filter);
+        for (int i = heap.size() / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+        staleCount = 0; // Every stale element matches the filters used with removeLazily
+        return before - heap.size();
+    }
+
+    /**
+     * Records that some elements became stale without removing them, and drops all stale elements
+     * with one removeIf once they make up half of the heap, so each one costs amortized O(1).
+     * Readers of the heap must skip stale elements until then.
+     *
+     * @param count Number of elements that just became stale.
+     * @param stale Predicate matching every stale element.
+     */
+    public void removeLazily(int count, Predicate<? super T> stale) {
+        staleCount += count;
+        if (staleCount > 0 && staleCount * 2 >= heap.size()) {
+            removeIf(stale);
+        }
+    }
+
     /**
      * Finds the index of a specific value in the heap.
      *
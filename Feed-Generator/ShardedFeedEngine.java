@@ -0,0 +1,847 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+
+/**
+ * Feed engine that hash-partitions users and their posts over several single-threaded shards.
+ * Commands whose users all live on one shard run there through the regular Main handlers.
+ * Commands that span shards are chains of steps: when the command is read, a slot is reserved for
+ * every step on the shard that will run it, and each step is filled into its slot once the step
+ * before it has answered, so no shard task ever waits for another shard.
+ * Updates to the reverse indexes of a user or post on another shard are steps of their own, so each
+ * structure is only touched by its own shard and no locks are taken.
+ * Since slots are reserved in input order and every shard runs its slots in that order, each shard
+ * applies the steps of all commands in the same order as a sequential run, and the output equals the
+ * sequential output. When a step depends on a shard that cannot be known yet, such as the owners of
+ * the posts in a feed, a slot is reserved on every shard that may be involved and the others skip it.
+ * delete_user and recommend_follows read several shards at once and wait until every shard has run
+ * the slots reserved before them.
+ */
+public class ShardedFeedEngine {
+
+    private static final int OUTPUT_WINDOW = 1 << 14; // Maximum number of unanswered commands in flight
+
+    private final FeedShard[] shards; // Shards owning the users and posts
+
+    // Where each post ID was last routed to, only used by the coordinating thread
+    private final CustomHashMap<String, Route> postDirectory;
+
+    /**
+     * Represents a post as seen by a feed at the moment the feed was built.
+     * The like count is copied so the feed can be ranked off the owning shard.
+     */
+    static class FeedCandidate implements Comparable<FeedCandidate> {
+        Post post;
+        String postId;
+        String authorId;
+        int likes;
+
+        /**
+         * Takes a snapshot of the given post.
+         *
+         * @param post The post to snapshot.
+         */
+        FeedCandidate(Post post) {
+            this.post = post;
+            this.postId = post.postId;
+            this.authorId = post.creator.id;
+            this.likes = post.likes;
+        }
+
+        /**
+         * Orders candidates the same way Post.compareTo orders posts.
+         *
+         * @param o The other candidate to compare to.
+         * @return The comparison result by likes, then by post ID.
+         */
+        public int compareTo(FeedCandidate o) {
+            if (this.likes != o.likes) {
+                return this.likes > o.likes ? 1 : -1;
+            }
+            return this.postId.compareTo(o.postId);
+        }
+    }
+
+    /**
+     * Shard a post ID is routed to. While a create_post that reuses the ID is still asking the
+     * previous shard whether it has the post, the ID may end up on either shard, so commands on the
+     * post reserve a slot on every candidate and only the shard the ID is routed to runs the step.
+     */
+    static class Route {
+        int[] candidates; // Indexes of the shards the post ID may be routed to
+        CompletableFuture<Integer> owner; // Index of the shard the post ID is routed to, once known
+
+        /**
+         * Constructs a route.
+         *
+         * @param candidates Indexes of the shards the post ID may be routed to.
+         * @param owner      Index of the shard the post ID is routed to, once known.
+         */
+        Route(int[] candidates, CompletableFuture<Integer> owner) {
+            this.candidates = candidates;
+            this.owner = owner;
+        }
+    }
+
+    /**
+     * Feed candidates of a user gathered so far. The user's shard snapshots the followed users it
+     * owns itself and lists the others by shard; those are then asked for their snapshots.
+     *
+     * @param <T> The type of the command result built from the candidates.
+     */
+    static class Gathered<T> {
+        User user; // User the candidates are gathered for, or null if the user does not exist
+        ArrayList<FeedCandidate> candidates = new ArrayList<>(); // Snapshots of the posts of followed users
+        ArrayList<ArrayList<User>> remote; // Followed users on other shards, by shard index, or null
+        boolean finished; // Whether result is already set because no other shard was involved
+        T result; // Result of the command once finished
+    }
+
+    /**
+     * Holds the outcome of a scroll that was computed on the scrolling user's shard.
+     * The posts of other shards that were seen or liked still have to be reported to their shards.
+     */
+    static class ScrollResult {
+        String text; // Output of the command
+        User user; // User who scrolled, or null if the user does not exist
+        ArrayList<Post> seen = new ArrayList<>(); // Newly seen posts owned by other shards
+        ArrayList<Post> liked = new ArrayList<>(); // Posts owned by other shards liked while scrolling
+    }
+
+    /**
+     * Constructs an engine with the given number of shards and starts their threads.
+     *
+     * @param shardCount Number of shards, usually one per core.
+     */
+    public ShardedFeedEngine(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        shards = new FeedShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new FeedShard(i);
+            shards[i].start();
+        }
+        postDirectory = new CustomHashMap<>();
+    }
+
+    /**
+     * Finds the shard owning the given user.
+     *
+     * @param userId ID of the user.
+     * @return The shard the user is hashed to.
+     */
+    FeedShard shardOf(String userId) {
+        int hashCode = (userId == null) ? 0 : userId.hashCode();
+        return shards[Math.floorMod(hashCode, shards.length)];
+    }
+
+    /**
+     * Waits until every shard has run all slots reserved so far. Every step of a command is
+     * reserved when the command is read, so afterwards no earlier command has anything left to do.
+     */
+    private void quiesce() {
+        CompletableFuture<?>[] idle = new CompletableFuture<?>[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            idle[i] = shards[i].ask(() -> null);
+        }
+        CompletableFuture.allOf(idle).join();
+    }
+
+    /**
+     * Creates a new user on its shard.
+     *
+     * @param userId The ID of the new user.
+     * @return Future status message.
+     */
+    public CompletableFuture<String> createUser(String userId) {
+        FeedShard home = shardOf(userId);
+        return home.ask(() -> Main.createUser(home.users, userId));
+    }
+
+    /**
+     * Lets one user follow another. The followed user's shard looks the user up first, then the
+     * follower's shard records the follow, and the followed user's shard updates its reverse index.
+     *
+     * @param userId1 ID of the user initiating the follow.
+     * @param userId2 ID of the user to be followed.
+     * @return Future status message.
+     */
+    public CompletableFuture<String> followUser(String userId1, String userId2) {
+        FeedShard home = shardOf(userId1);
+        FeedShard other = shardOf(userId2);
+        if (home == other) {
+            return home.ask(() -> Main.follow_user(home.users, userId1, userId2));
+        }
+        User[] follow = new User[2]; // Follower and followed user, set by the follower's shard if the follow took place
+        CompletableFuture<User> followed = other.ask(() -> other.users.get(userId2));
+        CompletableFuture<String> status = home.after(followed, home.reserve(), user2 -> {
+            User user1 = home.users.get(userId1);
+            if (user1 == null || user2 == null || user1.followedUsers.containsKey(userId2)) {
+                return "Some error occurred in follow_user.";
+            }
+            user1.addFollowedUser(user2);
+            follow[0] = user1;
+            follow[1] = user2;
+            return userId1 + " followed " + userId2 + ".";
+        });
+        return other.after(status, other.reserve(), text -> {
+            if (follow[0] != null) {
+                follow[1].addFollower(follow[0]);
+            }
+            return text;
+        });
+    }
+
+    /**
+     * Lets one user unfollow another. Only the follower's shard decides, since a user can only be
+     * in a followed map if it exists; the followed user's shard then drops the follower.
+     *
+     * @param userId1 ID of the user initiating the unfollow.
+     * @param userId2 ID of the user to be unfollowed.
+     * @return Future status message.
+     */
+    public CompletableFuture<String> unfollowUser(String userId1, String userId2) {
+        FeedShard home = shardOf(userId1);
+        FeedShard other = shardOf(userId2);
+        if (home == other) {
+            return home.ask(() -> Main.unfollow_user(home.users, userId1, userId2));
+        }
+        User[] unfollowed = new User[1]; // Set by the follower's shard if the unfollow took place
+        CompletableFuture<String> status = home.ask(() -> {
+            User user1 = home.users.get(userId1);
+            unfollowed[0] = (user1 == null) ? null : user1.followedUsers.remove(userId2);
+            if (unfollowed[0] == null) {
+                return "Some error occurred in unfollow_user.";
+            }
+            return userId1 + " unfollowed " + userId2 + ".";
+        });
+        return other.after(status, other.reserve(), text -> {
+            if (unfollowed[0] != null) {
+                unfollowed[0].removeFollower(userId1);
+            }
+            return text;
+        });
+    }
+
+    /**
+     * Creates a post on the author's shard. Post IDs are unique across all shards, so when the ID
+     * was previously routed to another shard, that shard is asked first and the post is only created
+     * if it does not have the post. Until that answer is there, the ID may be routed to either shard.
+     *
+     * @param userId  ID of the user creating the post.
+     * @param postId  ID of the post.
+     * @param content Content of the post.
+     * @return Future status message.
+     */
+    public CompletableFuture<String> createPost(String userId, String postId, String content) {
+        FeedShard home = shardOf(userId);
+        Route route = routeOf(postId);
+        if (route == null) {
+            postDirectory.put(postId, new Route(new int[]{home.index}, CompletableFuture.completedFuture(home.index)));
+        }
+        if (route == null || routedTo(route, home)) {
+            return home.ask(() -> Main.createPost(home.users, home.allPosts, home.postHash, userId, postId, content));
+        }
+        // The ID stays with the previous shard while that shard still has the post
+        CompletableFuture<Boolean> taken = onOwner(route, CompletableFuture.completedFuture(null),
+                (owner, ignored) -> owner.postHash.containsKey(postId));
+        CompletableFuture<String> result = home.after(taken, home.reserve(), exists -> exists
+                ? "Some error occurred in create_post."
+                : Main.createPost(home.users, home.allPosts, home.postHash, userId, postId, content));
+        int[] candidates = route.candidates;
+        if (Arrays.stream(candidates).noneMatch(index -> index == home.index)) {
+            candidates = Arrays.copyOf(candidates, candidates.length + 1);
+            candidates[candidates.length - 1] = home.index;
+        }
+        postDirectory.remove(postId);
+        postDirectory.put(postId, new Route(candidates,
+                taken.thenCombine(route.owner, (exists, index) -> exists ? index : home.index)));
+        return result;
+    }
+
+    /**
+     * Looks up the route of a post ID, narrowing it to its owner once that is known.
+     *
+     * @param postId ID of the post.
+     * @return The route, or null if the post ID was never routed.
+     */
+    private Route routeOf(String postId) {
+        Route route = postDirectory.get(postId);
+        if (route != null && route.candidates.length > 1 && route.owner.isDone()
+                && !route.owner.isCompletedExceptionally()) {
+            route.candidates = new int[]{route.owner.getNow(-1)};
+        }
+        return route;
+    }
+
+    /**
+     * Checks whether a post ID is known to be routed to a given shard.
+     *
+     * @param route The route of the post ID.
+     * @param shard The shard.
+     * @return true if the shard is the only candidate of the route.
+     */
+    private static boolean routedTo(Route route, FeedShard shard) {
+        return route.candidates.length == 1 && route.candidates[0] == shard.index;
+    }
+
+    /**
+     * Runs a step on the shard a post ID is routed to. A slot is reserved on every candidate of
+     * the route, and the candidates other than the owner skip theirs.
+     *
+     * @param route The route of the post ID.
+     * @param input Future input of the step.
+     * @param step  The step, given the owning shard and the input; runs on the owning shard.
+     * @param <A>   The type of the input.
+     * @param <T>   The type of the result.
+     * @return Future result of the step.
+     */
+    private <A, T> CompletableFuture<T> onOwner(Route route, CompletableFuture<A> input,
+                                                BiFunction<FeedShard, A, T> step) {
+        int[] candidates = route.candidates; // Narrowing the route later does not change the reserved slots
+        CompletableFuture<Integer> owner = route.owner;
+        CompletableFuture<A> ready = input.thenCombine(owner, (value, index) -> value);
+        ArrayList<CompletableFuture<T>> parts = new ArrayList<>(candidates.length);
+        for (int index : candidates) {
+            FeedShard shard = shards[index];
+            parts.add(shard.after(ready, shard.reserve(),
+                    value -> (owner.getNow(-1) == shard.index) ? step.apply(shard, value) : null));
+        }
+        if (parts.size() == 1) {
+            return parts.get(0);
+        }
+        return ready.thenCompose(value -> {
+            for (int i = 0; i < candidates.length; i++) {
+                if (candidates[i] == owner.getNow(-1)) {
+                    return parts.get(i);
+                }
+            }
+            throw new IllegalStateException("Post routed to a shard that is not a candidate");
+        });
+    }
+
+    /**
+     * Marks a post as seen by a user. The post is looked up on its own shard, the user's shard
+     * records it as seen, and the post's shard then adds the new viewer.
+     *
+     * @param userId ID of the user viewing the post.
+     * @param postId ID of the post.
+     * @return Future status message.
+     */
+    public CompletableFuture<String> seePost(String userId, String postId) {
+        FeedShard home = shardOf(userId);
+        Route route = routeOf(postId);
+        if (route == null) {
+            return CompletableFuture.completedFuture("Some error occurred in see_post.");
+        }
+        if (routedTo(route, home)) {
+            return home.ask(() -> Main.see_post(home.users, home.postHash, userId, postId));
+        }
+        Post[] viewed = new Post[1]; // Set by the post's shard
+        User[] viewer = new User[1]; // Set by the user's shard if the post was not seen before
+        CompletableFuture<Post> found = onOwner(route, CompletableFuture.completedFuture(null), (owner, ignored) -> {
+            viewed[0] = owner.postHash.get(postId);
+            return viewed[0];
+        });
+        CompletableFuture<String> status = home.after(found, home.reserve(), seen -> {
+            User user = home.users.get(userId);
+            if (user == null || seen == null) {
+                return "Some error occurred in see_post.";
+            }
+            if (user.recordSeen(seen)) {
+                viewer[0] = user;
+            }
+            return userId + " saw " + postId + ".";
+        });
+        return onOwner(route, status, (owner, text) -> {
+            if (viewer[0] != null) {
+                viewed[0].addViewer(viewer[0]);
+            }
+            return text;
+        });
+    }
+
+    /**
+     * Marks all posts of one user as seen by another user. The author's shard reads the post
+     * count, the viewer's shard moves the watermark, and the author's shard then adds a new viewer.
+     *
+     * @param userId1 ID of the user viewing posts.
+     * @param userId2 ID of the user whose posts are being viewed.
+     * @return Future status message.
+     */
+    public CompletableFuture<String> seeAllPosts(String userId1, String userId2) {
+        FeedShard home = shardOf(userId1);
+        FeedShard other = shardOf(userId2);
+        if (home == other) {
+            return home.ask(() -> Main.see_all_post(home.users, home.postHash, userId1, userId2));
+        }
+        int[] postCount = new int[1]; // Set by the author's shard together with the author
+        User[] bulkViewer = new User[1]; // Set by the viewer's shard if it had no watermark on the author yet
+        CompletableFuture<User> author = other.ask(() -> {
+            User user2 = other.users.get(userId2);
+            if (user2 != null) {
+                postCount[0] = user2.postCount;
+            }
+            return user2;
+        });
+        CompletableFuture<String> status = home.after(author, home.reserve(), user2 -> {
+            User user1 = home.users.get(userId1);
+            if (user1 == null || user2 == null) {
+                return "Some error occurred in see_all_posts_from_user.";
+            }
+            if (user1.recordWatermark(user2, postCount[0])) {
+                bulkViewer[0] = user1;
+            }
+            return userId1 + " saw all posts of " + userId2 + ".";
+        });
+        return other.after(status, other.reserve(), text -> {
+            if (bulkViewer[0] != null) {
+                author.getNow(null).addBulkViewer(bulkViewer[0]);
+            }
+            return text;
+        });
+    }
+
+    /**
+     * Toggles a like. The user's shard looks the user up, the post's shard applies the toggle
+     * and records the viewer, and the user's shard then does the liked-post bookkeeping.
+     *
+     * @param userId ID of the user liking or unliking the post.
+     * @param postId ID of the post.
+     * @return Future status message.
+     */
+    public CompletableFuture<String> toggleLike(String userId, String postId) {
+        FeedShard home = shardOf(userId);
+        Route route = routeOf(postId);
+        if (route == null) {
+            return CompletableFuture.completedFuture("Some error occurred in toggle_like.");
+        }
+        if (routedTo(route, home)) {
+            return home.ask(() -> Main.toggle_like(home.allPosts, home.users, home.postHash, userId, postId));
+        }
+        Post[] toggled = new Post[1]; // Set by the post's shard if the toggle took place
+        boolean[] liked = new boolean[1]; // Whether the toggle added a like
+        CompletableFuture<User> liker = home.ask(() -> home.users.get(userId));
+        CompletableFuture<String> status = onOwner(route, liker, (owner, user) -> {
+            Post post = owner.postHash.get(postId);
+            if (user == null || post == null) {
+                return "Some error occurred in toggle_like.";
+            }
+            toggled[0] = post;
+            liked[0] = post.toggleLike(userId);
+            if (!liked[0]) {
+                return userId + " unliked " + postId + ".";
+            }
+            post.addViewer(user); // A liked post counts as seen
+            return userId + " liked " + postId + ".";
+        });
+        return home.after(status, home.reserve(), text -> {
+            if (toggled[0] == null) {
+                return text;
+            }
+            User user = liker.getNow(null);
+            if (liked[0]) {
+                user.addLikedPost(toggled[0]);
+                user.recordSeen(toggled[0]);
+            } else {
+                user.removeLikedPost(postId);
+            }
+            return text;
+        });
+    }
+
+    /**
+     * Deletes a user. Since the relations of a user can reach every shard, the engine waits
+     * until all earlier commands have finished and then follows the reverse indexes from the
+     * calling thread.
+     *
+     * @param userId ID of the user to delete.
+     * @return Future status message.
+     */
+    public CompletableFuture<String> deleteUser(String userId) {
+        quiesce();
+        FeedShard home = shardOf(userId);
+        User user = home.users.get(userId);
+        if (user == null) {
+            return CompletableFuture.completedFuture("Some error occurred in delete_user.");
+        }
+        Main.removeUserRelations(user, id -> shardOf(id).users.get(id), home.postHash, home.allPosts, null);
+        home.users.remove(userId);
+        return CompletableFuture.completedFuture("Deleted user with Id " + userId + ".");
+    }
+
+    /**
+     * Recommends accounts for a user to follow. The two-hop walk reads the follow lists of
+     * users on every shard, so like deleteUser it waits until all earlier commands have finished
+     * and runs on the calling thread.
+     *
+     * @param userId      ID of the user asking for recommendations.
+     * @param k           Maximum number of recommendations.
+     * @param withCoLikes Whether users who liked the same posts are counted as well.
+     * @return Future recommendation list.
+     */
+    public CompletableFuture<String> recommendFollows(String userId, int k, boolean withCoLikes) {
+        quiesce();
+        User user = shardOf(userId).users.get(userId);
+        if (user == null) {
+            return CompletableFuture.completedFuture("Some error occurred in recommend_follows.\n");
+        }
+        return CompletableFuture.completedFuture(
+                FollowRecommender.recommend(user, k, withCoLikes, id -> shardOf(id).users.get(id)));
+    }
+
+    /**
+     * Adds a snapshot of every post of a user to a candidate list. Runs on the user's shard.
+     *
+     * @param author     The user whose posts are added.
+     * @param candidates The list to add the snapshots to.
+     */
+    private static void snapshotPosts(User author, ArrayList<FeedCandidate> candidates) {
+        for (Post post : author.posts) {
+            candidates.add(new FeedCandidate(post));
+        }
+    }
+
+    /**
+     * Gathers the feed candidates of a user and builds a result from them on the user's shard.
+     * The user's shard snapshots the followed users it owns and lists the others by shard. Every
+     * other shard has a slot reserved, where it snapshots the followed users it was sent, or skips
+     * the slot if there are none, and the combined candidates go back to the user's shard.
+     * When the user follows nobody on other shards, the result is built in the first step.
+     *
+     * @param home   Shard of the user requesting the feed.
+     * @param userId ID of the user requesting the feed.
+     * @param finish Builds the result from the user, or null if the user does not exist, and the
+     *               merged candidates; runs on the user's shard.
+     * @param <T>    The type of the result.
+     * @return Future result.
+     */
+    private <T> CompletableFuture<T> withCandidates(FeedShard home, String userId,
+                                                    BiFunction<User, PriorityQueue<FeedCandidate>, T> finish) {
+        CompletableFuture<Gathered<T>> local = home.ask(() -> {
+            Gathered<T> gathered = new Gathered<>();
+            gathered.user = home.users.get(userId);
+            if (gathered.user != null) {
+                for (User followedUser : gathered.user.followedUsers.values()) {
+                    FeedShard owner = shardOf(followedUser.id);
+                    if (owner == home) {
+                        snapshotPosts(followedUser, gathered.candidates);
+                        continue;
+                    }
+                    if (gathered.remote == null) {
+                        gathered.remote = new ArrayList<>(shards.length);
+                        for (int i = 0; i < shards.length; i++) {
+                            gathered.remote.add(null);
+                        }
+                    }
+                    if (gathered.remote.get(owner.index) == null) {
+                        gathered.remote.set(owner.index, new ArrayList<>());
+                    }
+                    gathered.remote.get(owner.index).add(followedUser);
+                }
+            }
+            if (gathered.remote == null) {
+                gathered.result = finish.apply(gathered.user, mergeCandidates(gathered.candidates));
+                gathered.finished = true;
+            }
+            return gathered;
+        });
+        CompletableFuture<Gathered<T>> all = local;
+        for (FeedShard shard : shards) {
+            if (shard == home) {
+                continue;
+            }
+            CompletableFuture<ArrayList<FeedCandidate>> part = shard.after(local, shard.reserve(), gathered -> {
+                ArrayList<FeedCandidate> candidates = new ArrayList<>();
+                if (gathered.remote != null && gathered.remote.get(shard.index) != null) {
+                    for (User followedUser : gathered.remote.get(shard.index)) {
+                        snapshotPosts(followedUser, candidates);
+                    }
+                }
+                return candidates;
+            });
+            all = all.thenCombine(part, (sofar, candidates) -> {
+                sofar.candidates.addAll(candidates);
+                return sofar;
+            });
+        }
+        // A finished feed does not wait for the other shards to reach their slots
+        CompletableFuture<Gathered<T>> gatheredAll = all;
+        CompletableFuture<Gathered<T>> merged = local.thenCompose(gathered -> gathered.finished
+                ? CompletableFuture.completedFuture(gathered) : gatheredAll);
+        return home.after(merged, home.reserve(), gathered -> gathered.finished
+                ? gathered.result : finish.apply(gathered.user, mergeCandidates(gathered.candidates)));
+    }
+
+    /**
+     * Merges the gathered candidates into one priority queue.
+     *
+     * @param candidates Snapshots of the posts of all followed users.
+     * @return The merged priority queue.
+     */
+    private static PriorityQueue<FeedCandidate> mergeCandidates(ArrayList<FeedCandidate> candidates) {
+        PriorityQueue<FeedCandidate> queue = new PriorityQueue<>();
+        for (FeedCandidate candidate : candidates) {
+            queue.insert(candidate);
+        }
+        return queue;
+    }
+
+    /**
+     * Pops up to num unseen candidates from the queue, in feed order.
+     *
+     * @param user  The user the feed is built for.
+     * @param queue Merged candidates of all followed users.
+     * @param num   Maximum number of posts in the feed.
+     * @return A priority queue holding the selected candidates.
+     */
+    private static PriorityQueue<FeedCandidate> selectFeed(User user, PriorityQueue<FeedCandidate> queue, int num) {
+        PriorityQueue<FeedCandidate> feed = new PriorityQueue<>();
+        while (feed.size() < num && !queue.isEmpty()) {
+            FeedCandidate k = queue.removeMax();
+            if (!user.hasSeen(k.post) && k.post.creator != user) {
+                feed.insert(k);
+            }
+        }
+        return feed;
+    }
+
+    /**
+     * Generates the feed of a user from the posts of followed users on all shards.
+     *
+     * @param userId ID of the user requesting the feed.
+     * @param num    Number of posts to fetch for the feed.
+     * @return Future feed text.
+     */
+    public CompletableFuture<String> generateFeed(String userId, int num) {
+        return withCandidates(shardOf(userId), userId, (user, candidates) -> {
+            if (user == null) {
+                return "Some error occurred in generate_feed.\n";
+            }
+            PriorityQueue<FeedCandidate> feed = selectFeed(user, candidates, num);
+            StringBuilder sb = new StringBuilder("Feed for " + userId + ":\n");
+            int number = num - feed.size();
+            while (!feed.isEmpty()) {
+                FeedCandidate k = feed.removeMax();
+                sb.append("Post ID: ").append(k.postId).append(", Author: ").append(k.authorId)
+                        .append(", Likes: ").append(k.likes).append("\n");
+            }
+            if (number > 0) {
+                sb.append("No more posts available for ").append(userId).append(".\n");
+            }
+            return sb.toString();
+        });
+    }
+
+    /**
+     * Generates the feeds of several users. Each feed is built on the shard of its user,
+     * and the texts are joined in the order of userIds.
+     *
+     * @param userIds IDs of the users requesting a feed.
+     * @param num     Number of posts to fetch for each feed.
+     * @return Future text of all feeds.
+     */
+    public CompletableFuture<String> generateFeedBatch(String[] userIds, int num) {
+        CompletableFuture<String> result = CompletableFuture.completedFuture("");
+        for (String userId : userIds) {
+            result = result.thenCombine(generateFeed(userId, num), String::concat);
+        }
+        return result;
+    }
+
+    /**
+     * Scrolls through the feed of a user. Seen posts and likes are recorded on the user's shard,
+     * every other shard then applies the views and likes of the posts it owns, and the user's shard
+     * finally records the posts that the scroll newly liked on other shards.
+     *
+     * @param userId  ID of the user scrolling through the feed.
+     * @param num     Number of posts to scroll through.
+     * @param actions Command tokens, where entries from index 3 on are the per-post actions.
+     * @return Future scroll text.
+     */
+    public CompletableFuture<String> scrollFeed(String userId, int num, String[] actions) {
+        FeedShard home = shardOf(userId);
+        CompletableFuture<ScrollResult> scrolled = withCandidates(home, userId, (user, candidates) -> {
+            ScrollResult result = new ScrollResult();
+            if (user == null) {
+                result.text = "Some error occurred in scroll_through_feed.\n";
+                return result;
+            }
+            result.user = user;
+            PriorityQueue<FeedCandidate> feed = selectFeed(user, candidates, num);
+            StringBuilder sb = new StringBuilder(userId + " is scrolling through feed:\n");
+            for (int i = 3; i < num + 3; i++) {
+                if (feed.isEmpty()) {
+                    sb.append("No more posts in feed.\n");
+                    break;
+                }
+                if (actions[i].equals("0") || actions[i].equals("1")) {
+                    Post k = feed.removeMax().post;
+                    boolean local = shardOf(k.creator.id) == home;
+                    if (local) {
+                        user.markSeen(k);
+                    } else if (user.recordSeen(k)) {
+                        result.seen.add(k);
+                    }
+                    sb.append(userId).append(" saw ").append(k.postId).append(" while scrolling");
+                    if (actions[i].equals("1")) {
+                        if (!local) {
+                            result.liked.add(k);
+                        } else if (k.like(userId)) {
+                            user.addLikedPost(k);
+                        }
+                        sb.append(" and clicked the like button");
+                    }
+                    sb.append(".\n");
+                }
+            }
+            result.text = sb.toString();
+            return result;
+        });
+        CompletableFuture<ArrayList<Post>> newlyLiked = CompletableFuture.completedFuture(new ArrayList<>());
+        for (FeedShard shard : shards) {
+            if (shard == home) {
+                continue;
+            }
+            CompletableFuture<ArrayList<Post>> part = shard.after(scrolled, shard.reserve(),
+                    result -> reportScroll(shard, result));
+            newlyLiked = newlyLiked.thenCombine(part, (sofar, posts) -> {
+                sofar.addAll(posts);
+                return sofar;
+            });
+        }
+        // A scroll without likes on other shards does not wait for them to reach their slots
+        CompletableFuture<ArrayList<Post>> likedAll = newlyLiked;
+        CompletableFuture<ArrayList<Post>> liked = scrolled.thenCompose(result -> result.liked.isEmpty()
+                ? CompletableFuture.completedFuture(new ArrayList<>()) : likedAll);
+        return home.after(liked, home.reserve(), posts -> {
+            ScrollResult result = scrolled.getNow(null);
+            for (Post post : posts) {
+                result.user.addLikedPost(post);
+            }
+            return result.text;
+        });
+    }
+
+    /**
+     * Applies the views and likes of a scroll to the posts one shard owns.
+     * Runs on the shard owning the posts.
+     *
+     * @param shard  The shard the posts belong to.
+     * @param result The scroll computed on the user's shard.
+     * @return The posts of the shard that the scroll newly liked.
+     */
+    private ArrayList<Post> reportScroll(FeedShard shard, ScrollResult result) {
+        ArrayList<Post> newlyLiked = new ArrayList<>();
+        User user = result.user;
+        for (Post post : result.seen) {
+            if (shardOf(post.creator.id) == shard) {
+                post.addViewer(user);
+            }
+        }
+        for (Post post : result.liked) {
+            if (shardOf(post.creator.id) == shard && post.like(user.id)) {
+                newlyLiked.add(post);
+            }
+        }
+        return newlyLiked;
+    }
+
+    /**
+     * Sorts the posts of a user on the user's shard.
+     *
+     * @param userId ID of the user whose posts need to be sorted.
+     * @return Future sorted post list.
+     */
+    public CompletableFuture<String> sortPosts(String userId) {
+        FeedShard home = shardOf(userId);
+        return home.ask(() -> Main.sort_posts(home.users, userId));
+    }
+
+    /**
+     * Stops all shard threads after they finish the tasks already submitted.
+     *
+     * @throws InterruptedException if interrupted while waiting for the shards.
+     */
+    public void shutdown() throws InterruptedException {
+        for (FeedShard shard : shards) {
+            shard.shutdown();
+        }
+        for (FeedShard shard : shards) {
+            shard.join();
+        }
+    }
+
+    /**
+     * Processes a command file with a sharded engine and writes the results in input order.
+     *
+     * @param input      File containing the commands.
+     * @param output     File to write the results to.
+     * @param shardCount Number of shards to use.
+     * @throws IOException if file operations fail.
+     */
+    public static void run(File input, File output, int shardCount) throws IOException {
+        ShardedFeedEngine engine = new ShardedFeedEngine(shardCount);
+        ArrayDeque<CompletableFuture<String>> pending = new ArrayDeque<>();
+        Scanner scanner = new Scanner(input);
+        FileWriter writer = new FileWriter(output);
+
+        while (scanner.hasNextLine()) {
+            String[] array = scanner.nextLine().split(" ");
+            CompletableFuture<String> result = null;
+            if (array.length == 0 || array[0].trim().isEmpty()) {
+                result = CompletableFuture.completedFuture("Invalid command: Line is empty or invalid.\n");
+            } else if (array[0].equals("create_user")) {
+                result = engine.createUser(array[1]).thenApply(s -> s + "\n");
+            } else if (array[0].equals("follow_user")) {
+                result = engine.followUser(array[1], array[2]).thenApply(s -> s + "\n");
+            } else if (array[0].equals("unfollow_user")) {
+                result = engine.unfollowUser(array[1], array[2]).thenApply(s -> s + "\n");
+            } else if (array[0].equals("create_post")) {
+                result = engine.createPost(array[1], array[2], array[3]).thenApply(s -> s + "\n");
+            } else if (array[0].equals("see_post")) {
+                result = engine.seePost(array[1], array[2]).thenApply(s -> s + "\n");
+            } else if (array[0].equals("toggle_like")) {
+                result = engine.toggleLike(array[1], array[2]).thenApply(s -> s + "\n");
+            } else if (array[0].equals("see_all_posts_from_user")) {
+                result = engine.seeAllPosts(array[1], array[2]).thenApply(s -> s + "\n");
+            } else if (array[0].equals("delete_user")) {
+                result = engine.deleteUser(array[1]).thenApply(s -> s + "\n");
+            } else if (array[0].equals("generate_feed")) {
+                result = engine.generateFeed(array[1], Integer.parseInt(array[2]));
+            } else if (array[0].equals("generate_feed_batch")) {
+                result = engine.generateFeedBatch(Arrays.copyOfRange(array, 2, array.length), Integer.parseInt(array[1]));
+            } else if (array[0].equals("scroll_through_feed")) {
+                result = engine.scrollFeed(array[1], Integer.parseInt(array[2]), array);
+            } else if (array[0].equals("sort_posts")) {
+                result = engine.sortPosts(array[1]);
+            } else if (array[0].equals("recommend_follows")) {
+                result = engine.recommendFollows(array[1], Integer.parseInt(array[2]),
+                        array.length > 3 && array[3].equals("colikes"));
+            }
+            if (result != null) {
+                pending.add(result);
+            }
+            // Write finished results in order, and wait when too many commands are in flight
+            while (!pending.isEmpty() && (pending.peek().isDone() || pending.size() > OUTPUT_WINDOW)) {
+                writer.write(pending.poll().join());
+            }
+        }
+        while (!pending.isEmpty()) {
+            writer.write(pending.poll().join());
+        }
+        writer.close();
+        try {
+            engine.shutdown();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,27 +1,27 @@
-import java.util.ArrayList;
+import java.util.List;
 
 /**
- * A utility class for sorting an ArrayList of Post objects using the QuickSort algorithm.
+ * A utility class for sorting a list of Post objects using the QuickSort algorithm.
  */
 public class SortArrayList {
 
     /**
-     * Sorts the given ArrayList of Post objects in descending order based on the compareTo method in the Post class.
+     * Sorts the given list of Post objects in descending order based on the compareTo method in the Post class.
      *
-     * @param list The ArrayList of Post objects to be sorted.
+     * @param list The list of Post objects to be sorted.
      */
-    public static void quickSort(ArrayList<Post> list) {
+    public static void quickSort(List<Post> list) {
         quickSort(list, 0, list.size() - 1);
     }
 
     /**
      * Recursive implementation of the QuickSort algorithm.
      *
-     * @param list The ArrayList of Post objects to be sorted.
+     * @param list The list of Post objects to be sorted.
      * @param low  The starting index of the sublist to be sorted.
      * @param high The ending index of the sublist to be sorted.
      */
-    private static void quickSort(ArrayList<Post> list, int low, int high) {
+    private static void quickSort(List<Post> list, int low, int high) {
         if (low < high) {
             // Partition the array and get the pivot index
             int pi = partition(list, low, high);
@@ -33,15 +33,15 @@ public class SortArrayList {
     }
 
     /**
-     * Partitions the ArrayList around a pivot element such that all elements greater than or equal to the pivot
+     * Partitions the list around a pivot element such that all elements greater than or equal to the pivot
      * are on the left, and all elements less than the pivot are on the right.
      *
-     * @param list The ArrayList of Post objects to be partitioned.
+     * @param list The list of Post objects to be partitioned.
      * @param low  The starting index of the sublist to be partitioned.
      * @param high The ending index of the sublist to be partitioned.
      * @return The index of the pivot element after partitioning.
      */
-    private static int partition(ArrayList<Post> list, int low, int high) {
+    private static int partition(List<Post> list, int low, int high) {
         // Choose the last element as the pivot
         Post pivot = list.get(high);
         int i = low - 1; // Index of smaller element
@@ -61,13 +61,13 @@ public class SortArrayList {
     }
 
     /**
-     * Swaps two elements in the given ArrayList.
+     * Swaps two elements in the given list.
      *
-     * @param list The ArrayList of Post objects.
+     * @param list The list of Post objects.
      * @param i    The index of the first element to be swapped.
      * @param j    The index of the second element to be swapped.
      */
-    private static void swap(ArrayList<Post> list, int i, int j) {
+    private static void swap(List<Post> list, int i, int j) {
         Post temp = list.get(i);
         list.set(i, list.get(j));
         list.set(j, temp);
@@ -1,14 +1,24 @@
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Represents a user in the system.
  * Each user has a unique ID, a list of followed users, posts, and a personalized feed.
+ * The collections of a user start out as shared empty instances and are only allocated
+ * the first time something is added to them, so users without activity stay small.
+ * Reverse indexes (followers, liked posts and see-all viewers) let a user be deleted by only
+ * visiting its own relations. Like the rest of the user they are only touched by the thread that
+ * owns the user; the sharded engine sends updates from other shards to that thread as messages.
  */
 public class User {
 
+    // Shared immutable empty list used by every user that has not created a post yet
+    private static final List<Post> NO_POSTS = Collections.emptyList();
+
     /**
      * Constructs a new User with the given ID.
-     * Initializes data structures for followed users, posts, feed, and seen posts.
+     * All collections start out as shared empty instances.
      *
      * @param id The unique identifier of the user.
      */
@@ -16,22 +26,21 @@ public class User {
         this.id = id;
 
         // Users followed by this user
-        followedUsers = new CustomHashMap<>();
-
-        // Priority queue for the user's personalized feed
-        Feed = new PriorityQueue<>();
+        followedUsers = CustomHashMap.emptyMap();
 
         // Posts seen by the user
-        seenPost = new CustomHashMap<>();
+        seenPost = CustomHashMap.emptyMap();
 
-        // List of posts created by the user
-        posts = new ArrayList<>();
+        // Per-author watermarks set by seeing all posts of an author
+        seenWatermark = CustomHashMap.emptyMap();
 
-        // List of posts in the user's feed
-        feed = new ArrayList<>();
+        // List of posts created by the user
+        posts = NO_POSTS;
 
-        // Separate list for sorting posts
-        postsforsort = new ArrayList<>();
+        // Reverse indexes of the relations other users have with this user
+        followers = CustomHashMap.emptyMap();
+        likedPosts = CustomHashMap.emptyMap();
+        bulkViewers = CustomHashMap.emptyMap();
     }
 
     /**
@@ -43,13 +52,6 @@ public class User {
         return id;
     }
 
-    /**
-     * Returns the list of posts in the user's feed.
-     *
-     * @return An ArrayList of posts in the feed.
-     */
-    public ArrayList<Post> feed;
-
     /**
      * Returns the map of users followed by this user.
      *
@@ -62,21 +64,225 @@ public class User {
     /**
      * Returns the priority queue representing the user's feed.
      *
-     * @return A PriorityQueue of posts.
+     * @return A PriorityQueue of posts, empty if no feed has been generated yet.
      */
     public PriorityQueue<Post> getFeed() {
-        return Feed;
+        return (Feed == null) ? new PriorityQueue<>() : Feed;
     }
 
     /**
      * Returns the list of posts created by the user.
      *
-     * @return An ArrayList of the user's posts.
+     * @return A list of the user's posts, immutable while the user has not created any.
      */
-    public ArrayList<Post> getPosts() {
+    public List<Post> getPosts() {
         return posts;
     }
 
+    /**
+     * Adds a user to the users followed by this user.
+     *
+     * @param user The user to follow.
+     */
+    public void follow(User user) {
+        addFollowedUser(user);
+        user.addFollower(this);
+    }
+
+    /**
+     * Adds a user to the users followed by this user without touching the followed user's
+     * reverse index, which the caller updates on the followed user's own thread.
+     *
+     * @param user The user to follow.
+     */
+    void addFollowedUser(User user) {
+        if (followedUsers == CustomHashMap.<String, User>emptyMap()) {
+            followedUsers = new CustomHashMap<>();
+        }
+        followedUsers.put(user.id, user);
+    }
+
+    /**
+     * Removes a user from the users followed by this user.
+     *
+     * @param userId ID of the user to unfollow.
+     */
+    public void unfollow(String userId) {
+        User followed = followedUsers.remove(userId);
+        if (followed != null) {
+            followed.removeFollower(id);
+        }
+    }
+
+    /**
+     * Adds a post to the posts created by this user.
+     *
+     * @param post The post created by the user.
+     */
+    public void addPost(Post post) {
+        if (posts == NO_POSTS) {
+            posts = new ArrayList<>();
+        }
+        post.ordinal = postCount++;
+        post.position = posts.size();
+        posts.add(post);
+    }
+
+    /**
+     * Removes a post from the posts created by this user in constant time by moving the
+     * last post into its place. The order of the posts list carries no meaning.
+     *
+     * @param post The post to remove, which must be one of this user's posts.
+     */
+    void removePost(Post post) {
+        Post last = posts.remove(posts.size() - 1);
+        if (last != post) {
+            posts.set(post.position, last);
+            last.position = post.position;
+        }
+    }
+
+    /**
+     * Records that the user has seen a single post.
+     *
+     * @param post The post that was seen.
+     */
+    public void markSeen(Post post) {
+        if (recordSeen(post)) {
+            post.addViewer(this);
+        }
+    }
+
+    /**
+     * Records that the user has seen a single post without touching the post's reverse index,
+     * which the caller updates on the thread owning the post.
+     *
+     * @param post The post that was seen.
+     * @return true if the post was not recorded as seen before, false otherwise.
+     */
+    boolean recordSeen(Post post) {
+        if (seenPost == CustomHashMap.<String, Post>emptyMap()) {
+            seenPost = new CustomHashMap<>();
+        }
+        Post previous = seenPost.get(post.postId);
+        if (previous == post) {
+            return false;
+        }
+        if (previous != null) {
+            seenPost.remove(post.postId); // Stale entry of a removed post with the same ID
+        }
+        seenPost.put(post.postId, post);
+        return true;
+    }
+
+    /**
+     * Checks whether the user has seen the given post, either individually
+     * or through a watermark covering the post's author.
+     *
+     * @param post The post to check.
+     * @return true if the post has been seen, false otherwise.
+     */
+    public boolean hasSeen(Post post) {
+        if (seenPost.get(post.postId) == post) {
+            return true;
+        }
+        Integer watermark = seenWatermark.get(post.creator.id);
+        return watermark != null && post.ordinal < watermark;
+    }
+
+    /**
+     * Marks the first postCount posts of an author as seen by moving the author's watermark.
+     *
+     * @param author    The author whose posts were seen.
+     * @param postCount Number of posts the author had created at that moment.
+     */
+    public void seeAllPostsUpTo(User author, int postCount) {
+        if (recordWatermark(author, postCount)) {
+            author.addBulkViewer(this);
+        }
+    }
+
+    /**
+     * Moves the watermark of an author without touching the author's reverse index,
+     * which the caller updates on the author's own thread.
+     *
+     * @param author    The author whose posts were seen.
+     * @param postCount Number of posts the author had created at that moment.
+     * @return true if the user held no watermark on the author before, false otherwise.
+     */
+    boolean recordWatermark(User author, int postCount) {
+        if (seenWatermark == CustomHashMap.<String, Integer>emptyMap()) {
+            seenWatermark = new CustomHashMap<>();
+        }
+        boolean first = seenWatermark.remove(author.id) == null;
+        seenWatermark.put(author.id, postCount);
+        return first;
+    }
+
+    /**
+     * Records that this user likes the given post.
+     *
+     * @param post The liked post.
+     */
+    public void addLikedPost(Post post) {
+        if (likedPosts == CustomHashMap.<String, Post>emptyMap()) {
+            likedPosts = new CustomHashMap<>();
+        }
+        likedPosts.remove(post.postId); // Drops a stale entry of a removed post with the same ID
+        likedPosts.put(post.postId, post);
+    }
+
+    /**
+     * Records that this user no longer likes the given post.
+     *
+     * @param postId ID of the unliked post.
+     */
+    public void removeLikedPost(String postId) {
+        likedPosts.remove(postId);
+    }
+
+    /**
+     * Records that the given user follows this user.
+     *
+     * @param follower The new follower.
+     */
+    void addFollower(User follower) {
+        if (followers == CustomHashMap.<String, User>emptyMap()) {
+            followers = new CustomHashMap<>();
+        }
+        followers.put(follower.id, follower);
+    }
+
+    /**
+     * Records that the given user no longer follows this user.
+     *
+     * @param followerId ID of the former follower.
+     */
+    void removeFollower(String followerId) {
+        followers.remove(followerId);
+    }
+
+    /**
+     * Records that the given user holds a see-all watermark on this user's posts.
+     *
+     * @param viewer The user holding the watermark.
+     */
+    void addBulkViewer(User viewer) {
+        if (bulkViewers == CustomHashMap.<String, User>emptyMap()) {
+            bulkViewers = new CustomHashMap<>();
+        }
+        bulkViewers.put(viewer.id, viewer);
+    }
+
+    /**
+     * Records that the given user no longer holds a watermark on this user's posts.
+     *
+     * @param viewerId ID of the viewer.
+     */
+    void removeBulkViewer(String viewerId) {
+        bulkViewers.remove(viewerId);
+    }
+
     // User's unique ID
     String id;
 
@@ -86,12 +292,24 @@ public class User {
     // Map of posts seen by this user
     CustomHashMap<String, Post> seenPost;
 
-    // List of posts for sorting
-    ArrayList<Post> postsforsort;
+    // Map from author ID to the number of that author's posts seen all at once
+    CustomHashMap<String, Integer> seenWatermark;
 
-    // Priority queue for the user's feed
+    // Priority queue for the user's feed, created by the first generated feed
     PriorityQueue<Post> Feed;
 
-    // List of posts created by the user
-    ArrayList<Post> posts;
+    // List of posts created by the user, the shared immutable NO_POSTS until the first post
+    List<Post> posts;
+
+    // Number of posts the user has ever created, including removed ones
+    int postCount;
+
+    // Users following this user, reverse index of followedUsers
+    CustomHashMap<String, User> followers;
+
+    // Posts liked by this user, reverse index of Post.likedBy
+    CustomHashMap<String, Post> likedPosts;
+
+    // Users holding a see-all watermark on this user's posts, reverse index of seenWatermark
+    CustomHashMap<String, User> bulkViewers;
 }
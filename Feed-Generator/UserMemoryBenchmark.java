@@ -0,0 +1,74 @@
+/**
+ * Measures the retained heap per user for a population of lurkers and for a population
+ * of users that post, follow and see posts.
+ * Run with: java UserMemoryBenchmark [userCount]
+ */
+public class UserMemoryBenchmark {
+
+    /**
+     * Returns the heap currently in use after asking the JVM to collect garbage.
+     *
+     * @return Used heap in bytes.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Creates users that never do anything after being created.
+     *
+     * @param count Number of users to create.
+     * @return Map holding the created users.
+     */
+    private static CustomHashMap<String, User> createLurkers(int count) {
+        CustomHashMap<String, User> users = new CustomHashMap<>();
+        for (int i = 0; i < count; i++) {
+            Main.createUser(users, "user" + i);
+        }
+        return users;
+    }
+
+    /**
+     * Creates users where each one posts once, follows the previous user and sees one post.
+     *
+     * @param count Number of users to create.
+     * @return Map holding the created users.
+     */
+    private static CustomHashMap<String, User> createActiveUsers(int count) {
+        CustomHashMap<String, User> users = new CustomHashMap<>();
+        CustomHashMap<String, Post> postHash = new CustomHashMap<>();
+        PriorityQueue<Post> allPosts = new PriorityQueue<>();
+        for (int i = 0; i < count; i++) {
+            Main.createUser(users, "user" + i);
+            Main.createPost(users, allPosts, postHash, "user" + i, "post" + i, "content");
+            if (i > 0) {
+                Main.follow_user(users, "user" + i, "user" + (i - 1));
+                Main.see_post(users, postHash, "user" + i, "post" + (i - 1));
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Prints the retained bytes per user for both populations.
+     *
+     * @param args Optional number of users per population.
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+
+        long before = usedHeap();
+        CustomHashMap<String, User> lurkers = createLurkers(count);
+        long lurkerBytes = usedHeap() - before;
+        System.out.println("Lurkers:      " + lurkers.size() + " users, " + lurkerBytes / count + " bytes/user");
+
+        before = usedHeap();
+        CustomHashMap<String, User> active = createActiveUsers(count);
+        long activeBytes = usedHeap() - before;
+        System.out.println("Active users: " + active.size() + " users, " + activeBytes / count + " bytes/user");
+    }
+}
@@ -0,0 +1,703 @@
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * Array-backed B+-tree index of parking lots, an alternative to the pointer-based AVL Tree.
+ * Nodes are numbered and all their fields live in parallel arrays: each node holds up to ORDER
+ * sorted int capacity keys in one contiguous slice, so a lookup reads a few cache lines per level
+ * instead of following one object per level. Leaves hold the parking lots and are linked in key order.
+ * Like Tree, every node keeps the truck count and the combined state bits of its subtree.
+ * Deletion does not merge underfull nodes; a node is only freed once it becomes empty. Nodes are
+ * only split when full, so the height still stays logarithmic in the number of lots ever inserted.
+ */
+public class BPlusTree implements ParkingLotIndex {
+
+    static final int ORDER = 32; // Maximum number of keys in a leaf and of children in an inner node
+    private static final int MAX_HEIGHT = 16; // Upper bound on the height, for the path stack
+
+    int[] keys; // Keys of node n at n * ORDER: lot capacities in leaves, separators in inner nodes
+    ParkingLot[] lots; // Parking lots of leaf n at n * ORDER, parallel to keys
+    int[] children; // Children of inner node n at n * ORDER
+    int[] size; // Number of keys of a leaf, or number of children of an inner node
+    boolean[] leaf; // Whether a node is a leaf
+    int[] next; // Next leaf in key order, or the next free node, -1 if none
+    int[] prev; // Previous leaf in key order, -1 if none
+    int[] truckCount; // Total truck count of a node's subtree
+    int[] state; // Union of the ParkingLot.state() bits of a node's subtree
+
+    int root = -1; // Root node, -1 while the tree is empty
+    int nodeCount; // Number of node slots handed out so far
+    int freeNode = -1; // Head of the list of freed node slots
+    int lotCount; // Number of parking lots in the tree
+
+    private int splitKey; // Separator produced by the last split, read by the parent
+    private boolean changed; // Whether the last insert or delete changed the tree
+    private ParkingLot removed; // Parking lot removed by the last delete
+    private final IndexStats stats = new IndexStats(); // Operation counters for SimulationStats
+    private final int[] path = new int[MAX_HEIGHT]; // Nodes visited by lotChanged, root first
+
+    /**
+     * Constructs an empty tree with room for a few nodes.
+     */
+    public BPlusTree() {
+        grow(16);
+    }
+
+    /**
+     * Resizes all node arrays to hold the given number of nodes.
+     * @param capacity New number of node slots.
+     */
+    private void grow(int capacity) {
+        keys = Arrays.copyOf(keys == null ? new int[0] : keys, capacity * ORDER);
+        lots = Arrays.copyOf(lots == null ? new ParkingLot[0] : lots, capacity * ORDER);
+        children = Arrays.copyOf(children == null ? new int[0] : children, capacity * ORDER);
+        size = Arrays.copyOf(size == null ? new int[0] : size, capacity);
+        leaf = Arrays.copyOf(leaf == null ? new boolean[0] : leaf, capacity);
+        next = Arrays.copyOf(next == null ? new int[0] : next, capacity);
+        prev = Arrays.copyOf(prev == null ? new int[0] : prev, capacity);
+        truckCount = Arrays.copyOf(truckCount == null ? new int[0] : truckCount, capacity);
+        state = Arrays.copyOf(state == null ? new int[0] : state, capacity);
+    }
+
+    /**
+     * Takes a node slot from the free list, or a new one.
+     * @param isLeaf Whether the node is a leaf.
+     * @return The number of the empty node.
+     */
+    private int allocate(boolean isLeaf) {
+        int node;
+        if (freeNode != -1) {
+            node = freeNode;
+            freeNode = next[node];
+        } else {
+            if (nodeCount == size.length) {
+                grow(size.length * 2);
+            }
+            node = nodeCount++;
+        }
+        leaf[node] = isLeaf;
+        size[node] = 0;
+        next[node] = -1;
+        prev[node] = -1;
+        truckCount[node] = 0;
+        state[node] = 0;
+        return node;
+    }
+
+    /**
+     * Returns a node slot to the free list, unlinking it from the leaf chain first.
+     * @param node The empty node to free.
+     */
+    private void release(int node) {
+        if (leaf[node]) {
+            if (prev[node] != -1) {
+                next[prev[node]] = next[node];
+            }
+            if (next[node] != -1) {
+                prev[next[node]] = prev[node];
+            }
+            Arrays.fill(lots, node * ORDER, node * ORDER + ORDER, null); // Let deleted lots be collected
+        }
+        next[node] = freeNode;
+        freeNode = node;
+    }
+
+    /**
+     * Recomputes the truck count and state summary of a node from its entries.
+     * @param node Node whose entries are up to date.
+     */
+    private void update(int node) {
+        int base = node * ORDER;
+        int trucks = 0;
+        int bits = 0;
+        if (leaf[node]) {
+            for (int i = 0; i < size[node]; i++) {
+                trucks += lots[base + i].totalTruckCount;
+                bits |= lots[base + i].state();
+            }
+        } else {
+            for (int i = 0; i < size[node]; i++) {
+                trucks += truckCount[children[base + i]];
+                bits |= state[children[base + i]];
+            }
+        }
+        truckCount[node] = trucks;
+        state[node] = bits;
+    }
+
+    /**
+     * Finds the child of an inner node whose key range contains a key.
+     * @param node The inner node.
+     * @param key The key to locate.
+     * @return Index of the child, which is the number of separators less than or equal to the key.
+     */
+    private int childIndex(int node, int key) {
+        int base = node * ORDER;
+        int separators = size[node] - 1;
+        int i = 0;
+        while (i < separators && keys[base + i] <= key) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Finds the position of the first key of a leaf that is greater than or equal to a key.
+     * @param node The leaf.
+     * @param key The key to locate.
+     * @return Index of the first key not below the given key, or the leaf size if there is none.
+     */
+    private int lowerBound(int node, int key) {
+        int base = node * ORDER;
+        int i = 0;
+        while (i < size[node] && keys[base + i] < key) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Finds the position of the first key of a leaf that is strictly greater than a key.
+     * @param node The leaf.
+     * @param key The key to locate.
+     * @return Index of the first key above the given key, or the leaf size if there is none.
+     */
+    private int upperBound(int node, int key) {
+        int base = node * ORDER;
+        int i = 0;
+        while (i < size[node] && keys[base + i] <= key) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Inserts a parking lot into the tree.
+     * @param parkingLot The parking lot to be inserted.
+     */
+    public void insertParkingLot(ParkingLot parkingLot) {
+        if (root == -1) {
+            root = allocate(true);
+        }
+        changed = false;
+        int right = insertHelper(root, parkingLot);
+        if (right != -1) {
+            // The root was split, so the tree grows by one level
+            int newRoot = allocate(false);
+            keys[newRoot * ORDER] = splitKey;
+            children[newRoot * ORDER] = root;
+            children[newRoot * ORDER + 1] = right;
+            size[newRoot] = 2;
+            update(newRoot);
+            root = newRoot;
+        }
+        if (changed) {
+            lotCount++;
+            stats.inserts++;
+            stats.setHeight(height());
+            parkingLot.publishedState = parkingLot.state();
+        }
+    }
+
+    /**
+     * Helper function to insert a parking lot into a subtree.
+     * @param node Root of the subtree.
+     * @param parkingLot The parking lot to be inserted.
+     * @return The new right sibling if the node had to be split, with its separator in splitKey, or -1.
+     */
+    private int insertHelper(int node, ParkingLot parkingLot) {
+        int key = parkingLot.capacityConstraint;
+        int base = node * ORDER;
+        if (leaf[node]) {
+            int pos = lowerBound(node, key);
+            if (pos < size[node] && keys[base + pos] == key) {
+                return -1; // Duplicate capacity constraint, do nothing
+            }
+            changed = true;
+            if (size[node] < ORDER) {
+                insertAt(node, pos, key, parkingLot);
+                update(node);
+                return -1;
+            }
+            return splitLeaf(node, pos, key, parkingLot);
+        }
+
+        int i = childIndex(node, key);
+        int right = insertHelper(children[base + i], parkingLot);
+        if (right != -1) {
+            if (size[node] < ORDER) {
+                insertChild(node, i, splitKey, right);
+            } else {
+                return splitInner(node, i, splitKey, right);
+            }
+        }
+        if (changed) {
+            update(node);
+        }
+        return -1;
+    }
+
+    /**
+     * Inserts a key and its parking lot into a leaf that has room.
+     * @param node The leaf.
+     * @param pos Position of the new key.
+     * @param key The capacity constraint.
+     * @param parkingLot The parking lot.
+     */
+    private void insertAt(int node, int pos, int key, ParkingLot parkingLot) {
+        int base = node * ORDER;
+        int count = size[node] - pos;
+        System.arraycopy(keys, base + pos, keys, base + pos + 1, count);
+        System.arraycopy(lots, base + pos, lots, base + pos + 1, count);
+        keys[base + pos] = key;
+        lots[base + pos] = parkingLot;
+        size[node]++;
+    }
+
+    /**
+     * Inserts a separator and the child to its right into an inner node that has room.
+     * @param node The inner node.
+     * @param i Index of the child that was split.
+     * @param separator Smallest key of the new child.
+     * @param right The new child.
+     */
+    private void insertChild(int node, int i, int separator, int right) {
+        int base = node * ORDER;
+        int separators = size[node] - 1;
+        System.arraycopy(keys, base + i, keys, base + i + 1, separators - i);
+        System.arraycopy(children, base + i + 1, children, base + i + 2, size[node] - i - 1);
+        keys[base + i] = separator;
+        children[base + i + 1] = right;
+        size[node]++;
+    }
+
+    /**
+     * Splits a full leaf while inserting a key, linking the new leaf after it.
+     * @param node The full leaf.
+     * @param pos Position of the new key.
+     * @param key The capacity constraint.
+     * @param parkingLot The parking lot.
+     * @return The new right leaf, with its first key in splitKey.
+     */
+    private int splitLeaf(int node, int pos, int key, ParkingLot parkingLot) {
+        stats.splits++;
+        int right = allocate(true);
+        int base = node * ORDER;
+        int rightBase = right * ORDER;
+        int leftSize = (ORDER + 1) / 2;
+
+        if (pos < leftSize) {
+            // The new key stays on the left, so one more key moves to the right
+            int moved = ORDER - (leftSize - 1);
+            System.arraycopy(keys, base + leftSize - 1, keys, rightBase, moved);
+            System.arraycopy(lots, base + leftSize - 1, lots, rightBase, moved);
+            Arrays.fill(lots, base + leftSize - 1, base + ORDER, null);
+            size[node] = leftSize - 1;
+            size[right] = moved;
+            insertAt(node, pos, key, parkingLot);
+        } else {
+            int moved = ORDER - leftSize;
+            System.arraycopy(keys, base + leftSize, keys, rightBase, moved);
+            System.arraycopy(lots, base + leftSize, lots, rightBase, moved);
+            Arrays.fill(lots, base + leftSize, base + ORDER, null);
+            size[node] = leftSize;
+            size[right] = moved;
+            insertAt(right, pos - leftSize, key, parkingLot);
+        }
+
+        // Link the new leaf into the leaf chain
+        next[right] = next[node];
+        prev[right] = node;
+        if (next[node] != -1) {
+            prev[next[node]] = right;
+        }
+        next[node] = right;
+
+        update(node);
+        update(right);
+        splitKey = keys[rightBase];
+        return right;
+    }
+
+    /**
+     * Splits a full inner node while inserting a separator and a child.
+     * @param node The full inner node.
+     * @param i Index of the child that was split.
+     * @param separator Smallest key of the new child.
+     * @param newChild The new child.
+     * @return The new right node, with the separator moving up in splitKey.
+     */
+    private int splitInner(int node, int i, int separator, int newChild) {
+        stats.splits++;
+        int base = node * ORDER;
+        // Lay out all ORDER + 1 children and ORDER separators in temporary arrays
+        int[] allKeys = new int[ORDER];
+        int[] allChildren = new int[ORDER + 1];
+        System.arraycopy(keys, base, allKeys, 0, i);
+        allKeys[i] = separator;
+        System.arraycopy(keys, base + i, allKeys, i + 1, ORDER - 1 - i);
+        System.arraycopy(children, base, allChildren, 0, i + 1);
+        allChildren[i + 1] = newChild;
+        System.arraycopy(children, base + i + 1, allChildren, i + 2, ORDER - 1 - i);
+
+        int right = allocate(false);
+        int rightBase = right * ORDER;
+        int leftSize = (ORDER + 1) / 2; // Children kept on the left
+        int rightSize = ORDER + 1 - leftSize;
+
+        System.arraycopy(allChildren, 0, children, base, leftSize);
+        System.arraycopy(allKeys, 0, keys, base, leftSize - 1);
+        System.arraycopy(allChildren, leftSize, children, rightBase, rightSize);
+        System.arraycopy(allKeys, leftSize, keys, rightBase, rightSize - 1);
+        size[node] = leftSize;
+        size[right] = rightSize;
+
+        update(node);
+        update(right);
+        splitKey = allKeys[leftSize - 1];
+        return right;
+    }
+
+    /**
+     * Deletes the parking lot with a given capacity constraint from the tree.
+     * @param capacityConstraint Capacity of the parking lot to delete.
+     * @return The deleted parking lot, or null if there was none.
+     */
+    public ParkingLot delete(int capacityConstraint) {
+        if (root == -1) {
+            return null;
+        }
+        changed = false;
+        removed = null;
+        deleteHelper(root, capacityConstraint);
+        if (!changed) {
+            return null;
+        }
+        lotCount--;
+        stats.deletes++;
+
+        // Shrink the tree while the root is empty or has a single child
+        while (root != -1 && (size[root] == 0 || (!leaf[root] && size[root] == 1))) {
+            int old = root;
+            root = (size[old] == 0) ? -1 : children[old * ORDER];
+            release(old);
+        }
+        stats.setHeight(height());
+        return removed;
+    }
+
+    /**
+     * Helper function to delete a key from a subtree, freeing children that become empty.
+     * @param node Root of the subtree.
+     * @param key Capacity constraint of the parking lot to delete.
+     */
+    private void deleteHelper(int node, int key) {
+        int base = node * ORDER;
+        if (leaf[node]) {
+            int pos = lowerBound(node, key);
+            if (pos == size[node] || keys[base + pos] != key) {
+                return; // Parking lot not found
+            }
+            removed = lots[base + pos];
+            int count = size[node] - pos - 1;
+            System.arraycopy(keys, base + pos + 1, keys, base + pos, count);
+            System.arraycopy(lots, base + pos + 1, lots, base + pos, count);
+            size[node]--;
+            lots[base + size[node]] = null;
+            changed = true;
+            update(node);
+            return;
+        }
+
+        int i = childIndex(node, key);
+        int child = children[base + i];
+        deleteHelper(child, key);
+        if (!changed) {
+            return;
+        }
+        if (size[child] == 0) {
+            // Drop the empty child together with the separator next to it
+            release(child);
+            int separators = size[node] - 1;
+            int k = (i > 0) ? i - 1 : 0;
+            if (separators > 0) {
+                System.arraycopy(keys, base + k + 1, keys, base + k, separators - k - 1);
+            }
+            System.arraycopy(children, base + i + 1, children, base + i, size[node] - i - 1);
+            size[node]--;
+        }
+        update(node);
+    }
+
+    /**
+     * Refreshes the summaries on the path to a parking lot after its trucks changed.
+     * Lots that are not in this tree are ignored.
+     * @param parkingLot The parking lot whose trucks changed.
+     */
+    public void lotChanged(ParkingLot parkingLot) {
+        int key = parkingLot.capacityConstraint;
+        int depth = 0;
+        int node = root;
+        while (node != -1 && !leaf[node]) {
+            path[depth++] = node;
+            node = children[node * ORDER + childIndex(node, key)];
+        }
+        if (node == -1) {
+            return;
+        }
+        int pos = lowerBound(node, key);
+        if (pos == size[node] || lots[node * ORDER + pos] != parkingLot) {
+            return;
+        }
+        update(node);
+        while (depth > 0) {
+            update(path[--depth]);
+        }
+        stats.countFlips(parkingLot);
+    }
+
+    /**
+     * Finds the parking lot with the largest capacity less than or equal to the specified value
+     * among the lots in the given state, skipping nodes whose summary lacks that state.
+     * @param capacityConstraint Capacity constraint to search for.
+     * @param state State bit the parking lot must have.
+     * @return The closest matching parking lot, or null if none found.
+     */
+    public ParkingLot findSuccesorr(int capacityConstraint, int state) {
+        stats.searches++;
+        return (root == -1) ? null : floorHelper(root, capacityConstraint, state);
+    }
+
+    /**
+     * Helper function that searches a subtree for the largest matching capacity not above the constraint.
+     * @param node Root of the subtree.
+     * @param capacityConstraint Capacity constraint to search for.
+     * @param wanted State bit the parking lot must have.
+     * @return The matching parking lot, or null if the subtree has none.
+     */
+    private ParkingLot floorHelper(int node, int capacityConstraint, int wanted) {
+        stats.searchVisits++;
+        if ((state[node] & wanted) == 0) {
+            return null; // No lot in this subtree has the state
+        }
+        int base = node * ORDER;
+        if (leaf[node]) {
+            for (int i = upperBound(node, capacityConstraint) - 1; i >= 0; i--) {
+                if ((lots[base + i].state() & wanted) != 0) {
+                    return lots[base + i];
+                }
+            }
+            return null;
+        }
+        int i = childIndex(node, capacityConstraint);
+        ParkingLot result = floorHelper(children[base + i], capacityConstraint, wanted);
+        // Every child on the left is below the constraint, so take the largest lot of the nearest match
+        for (int j = i - 1; result == null && j >= 0; j--) {
+            if ((state[children[base + j]] & wanted) != 0) {
+                result = lastWith(children[base + j], wanted);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the parking lot with the smallest capacity greater than or equal to the specified value
+     * among the lots in the given state, skipping nodes whose summary lacks that state.
+     * @param capacityConstraint The minimum capacity constraint for the parking lot.
+     * @param state State bit the parking lot must have.
+     * @return The suitable parking lot, or null if none found.
+     */
+    public ParkingLot findAncestor(int capacityConstraint, int state) {
+        stats.searches++;
+        return (root == -1) ? null : ceilingHelper(root, capacityConstraint, state);
+    }
+
+    /**
+     * Helper function that searches a subtree for the smallest matching capacity not below the constraint.
+     * @param node Root of the subtree.
+     * @param capacityConstraint The minimum capacity constraint for the parking lot.
+     * @param wanted State bit the parking lot must have.
+     * @return The matching parking lot, or null if the subtree has none.
+     */
+    private ParkingLot ceilingHelper(int node, int capacityConstraint, int wanted) {
+        stats.searchVisits++;
+        if ((state[node] & wanted) == 0) {
+            return null; // No lot in this subtree has the state
+        }
+        int base = node * ORDER;
+        if (leaf[node]) {
+            for (int i = lowerBound(node, capacityConstraint); i < size[node]; i++) {
+                if ((lots[base + i].state() & wanted) != 0) {
+                    return lots[base + i];
+                }
+            }
+            return null;
+        }
+        int i = childIndex(node, capacityConstraint);
+        ParkingLot result = ceilingHelper(children[base + i], capacityConstraint, wanted);
+        // Every child on the right is above the constraint, so take the smallest lot of the nearest match
+        for (int j = i + 1; result == null && j < size[node]; j++) {
+            if ((state[children[base + j]] & wanted) != 0) {
+                result = firstWith(children[base + j], wanted);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Visits the parking lots in the given state with a capacity greater than or equal to the specified
+     * value in ascending order, until the visitor returns false. After one descent the walk follows
+     * the leaf chain, skipping leaves whose summary lacks the state.
+     * @param capacityConstraint The minimum capacity constraint of the visited lots.
+     * @param state State bit the visited lots must have when they are reached, or 0 to visit every lot.
+     * @param visitor Called for each lot, returns false to stop the walk.
+     */
+    public void forEachFrom(int capacityConstraint, int state, Predicate<ParkingLot> visitor) {
+        int node = root;
+        if (node == -1) {
+            return;
+        }
+        while (!leaf[node]) {
+            node = children[node * ORDER + childIndex(node, capacityConstraint)];
+        }
+        int pos = lowerBound(node, capacityConstraint);
+        for (; node != -1; node = next[node], pos = 0) {
+            if (state != 0 && (this.state[node] & state) == 0) {
+                continue;
+            }
+            int base = node * ORDER;
+            for (int i = pos; i < size[node]; i++) {
+                if ((state == 0 || (lots[base + i].state() & state) != 0) && !visitor.test(lots[base + i])) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the largest parking lot in the given state in a subtree whose summary has that state.
+     * @param node Root of the subtree.
+     * @param wanted State bit the parking lot must have.
+     * @return The matching parking lot.
+     */
+    private ParkingLot lastWith(int node, int wanted) {
+        while (!leaf[node]) {
+            stats.searchVisits++;
+            int base = node * ORDER;
+            int i = size[node] - 1;
+            while ((state[children[base + i]] & wanted) == 0) {
+                i--;
+            }
+            node = children[base + i];
+        }
+        int base = node * ORDER;
+        int i = size[node] - 1;
+        while ((lots[base + i].state() & wanted) == 0) {
+            i--;
+        }
+        return lots[base + i];
+    }
+
+    /**
+     * Finds the smallest parking lot in the given state in a subtree whose summary has that state.
+     * @param node Root of the subtree.
+     * @param wanted State bit the parking lot must have.
+     * @return The matching parking lot.
+     */
+    private ParkingLot firstWith(int node, int wanted) {
+        while (!leaf[node]) {
+            stats.searchVisits++;
+            int base = node * ORDER;
+            int i = 0;
+            while ((state[children[base + i]] & wanted) == 0) {
+                i++;
+            }
+            node = children[base + i];
+        }
+        int base = node * ORDER;
+        int i = 0;
+        while ((lots[base + i].state() & wanted) == 0) {
+            i++;
+        }
+        return lots[base + i];
+    }
+
+    /**
+     * Counts the trucks in parking lots with a capacity constraint strictly greater than the given one,
+     * adding the summaries of whole children to the right of the search path.
+     * @param capacityConstraint Capacity constraint to count above.
+     * @return Total truck count of the matching parking lots.
+     */
+    public int countGreaterThan(int capacityConstraint) {
+        int node = root;
+        int total = 0;
+        if (node == -1) {
+            return 0;
+        }
+        while (!leaf[node]) {
+            int base = node * ORDER;
+            int i = childIndex(node, capacityConstraint);
+            for (int j = i + 1; j < size[node]; j++) {
+                total += truckCount[children[base + j]];
+            }
+            node = children[base + i];
+        }
+        int base = node * ORDER;
+        for (int i = upperBound(node, capacityConstraint); i < size[node]; i++) {
+            total += lots[base + i].totalTruckCount;
+        }
+        return total;
+    }
+
+    /**
+     * Finds the parking lot with the smallest capacity strictly greater than the given one,
+     * following the leaf chain when the key is past the end of its leaf.
+     * @param capacityConstraint The capacity constraint to search above.
+     * @return The next greater parking lot, or null if none exists.
+     */
+    public ParkingLot countHelper(int capacityConstraint) {
+        int node = root;
+        if (node == -1) {
+            return null;
+        }
+        while (!leaf[node]) {
+            node = children[node * ORDER + childIndex(node, capacityConstraint)];
+        }
+        int pos = upperBound(node, capacityConstraint);
+        if (pos == size[node]) {
+            // Leaves are never empty, so the next leaf starts with the answer
+            node = next[node];
+            pos = 0;
+        }
+        return (node == -1) ? null : lots[node * ORDER + pos];
+    }
+
+    /**
+     * Returns the operation counters of the tree.
+     * @return The counters.
+     */
+    public IndexStats stats() {
+        return stats;
+    }
+
+    /**
+     * Counts the levels of the tree.
+     * @return Number of nodes on a path from the root to a leaf, 0 if the tree is empty.
+     */
+    public int height() {
+        int levels = 0;
+        for (int node = root; node != -1; node = leaf[node] ? -1 : children[node * ORDER]) {
+            levels++;
+        }
+        return levels;
+    }
+
+    /**
+     * Finds the next greater parking lot in key order.
+     * @param parkingLot The reference parking lot.
+     * @return The parking lot with the next greater capacity constraint, or null if none exists.
+     */
+    public ParkingLot findNextGreater(ParkingLot parkingLot) {
+        return (parkingLot == null) ? null : countHelper(parkingLot.capacityConstraint);
+    }
+}
@@ -0,0 +1,214 @@
+import java.util.function.Predicate;
+
+/**
+ * Parking lot index for capacity constraints known to lie in [0, universe).
+ * Lots are stored in an array indexed by capacity, and one HierarchicalBitset per state bit marks
+ * the capacities whose lot has that state, so the state-filtered searches are a successor or
+ * predecessor query of a few word operations. Truck counts are kept in a Fenwick tree over the
+ * capacities. Memory grows with the universe rather than the number of lots, so this index is
+ * meant for runs where the capacity range is known up front and not much larger than the lot count.
+ */
+public class BitsetIndex implements ParkingLotIndex {
+
+    private final int universe; // Capacities must be at least 0 and below this bound
+    private final ParkingLot[] lotAt; // Parking lot with each capacity, or null
+    private final int[] countedTrucks; // Truck count of each lot as last added to the Fenwick tree
+    private final int[] fenwick; // Fenwick tree of truck counts by capacity, 1-based
+    private final HierarchicalBitset present; // Capacities that have a lot
+    private final HierarchicalBitset[] withState; // Capacities whose lot has each state bit, by bit position
+
+    /**
+     * Constructs an empty index for the capacities 0 to maxCapacity.
+     *
+     * @param maxCapacity Largest capacity constraint that will be inserted.
+     */
+    public BitsetIndex(int maxCapacity) {
+        if (maxCapacity < 0 || maxCapacity == Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Capacity range out of bounds: " + maxCapacity);
+        }
+        universe = maxCapacity + 1;
+        lotAt = new ParkingLot[universe];
+        countedTrucks = new int[universe];
+        fenwick = new int[universe + 1];
+        present = new HierarchicalBitset(universe);
+        withState = new HierarchicalBitset[3];
+        for (int i = 0; i < withState.length; i++) {
+            withState[i] = new HierarchicalBitset(universe);
+        }
+    }
+
+    /**
+     * Adds a value to the truck count of a capacity in the Fenwick tree.
+     *
+     * @param capacity The capacity.
+     * @param delta    Change of the truck count.
+     */
+    private void addTrucks(int capacity, int delta) {
+        for (int i = capacity + 1; i <= universe; i += i & -i) {
+            fenwick[i] += delta;
+        }
+    }
+
+    /**
+     * Sums the truck counts of all capacities up to and including the given one.
+     *
+     * @param capacity The last capacity to include.
+     * @return Total truck count of the capacities 0 to capacity.
+     */
+    private int trucksUpTo(int capacity) {
+        int total = 0;
+        for (int i = capacity + 1; i > 0; i -= i & -i) {
+            total += fenwick[i];
+        }
+        return total;
+    }
+
+    /**
+     * Brings the state bits and the truck count of a capacity in line with its lot.
+     *
+     * @param capacity  The capacity.
+     * @param parkingLot The lot with that capacity, or null if it was removed.
+     */
+    private void refresh(int capacity, ParkingLot parkingLot) {
+        int state = (parkingLot == null) ? 0 : parkingLot.state();
+        for (int bit = 0; bit < withState.length; bit++) {
+            if ((state & (1 << bit)) != 0) {
+                withState[bit].set(capacity);
+            } else {
+                withState[bit].clear(capacity);
+            }
+        }
+        int trucks = (parkingLot == null) ? 0 : parkingLot.totalTruckCount;
+        if (trucks != countedTrucks[capacity]) {
+            addTrucks(capacity, trucks - countedTrucks[capacity]);
+            countedTrucks[capacity] = trucks;
+        }
+    }
+
+    /**
+     * Inserts a parking lot. Lots whose capacity constraint is already present are ignored.
+     *
+     * @param parkingLot The parking lot to be inserted.
+     * @throws IllegalArgumentException if the capacity constraint is outside the range of the index.
+     */
+    public void insertParkingLot(ParkingLot parkingLot) {
+        int capacity = parkingLot.capacityConstraint;
+        if (capacity < 0 || capacity >= universe) {
+            throw new IllegalArgumentException("Capacity constraint " + capacity + " is outside [0, " + universe + ")");
+        }
+        if (lotAt[capacity] != null) {
+            return; // Duplicate capacity constraint, do nothing
+        }
+        lotAt[capacity] = parkingLot;
+        present.set(capacity);
+        refresh(capacity, parkingLot);
+    }
+
+    /**
+     * Deletes the parking lot with a given capacity constraint, if there is one.
+     *
+     * @param capacityConstraint Capacity of the parking lot to delete.
+     * @return The deleted parking lot, or null if there was none.
+     */
+    public ParkingLot delete(int capacityConstraint) {
+        if (capacityConstraint < 0 || capacityConstraint >= universe || lotAt[capacityConstraint] == null) {
+            return null;
+        }
+        ParkingLot parkingLot = lotAt[capacityConstraint];
+        lotAt[capacityConstraint] = null;
+        present.clear(capacityConstraint);
+        refresh(capacityConstraint, null);
+        return parkingLot;
+    }
+
+    /**
+     * Refreshes the state bits and truck count of a parking lot after its trucks changed.
+     * Lots that are not in the index are ignored.
+     *
+     * @param parkingLot The parking lot whose trucks changed.
+     */
+    public void lotChanged(ParkingLot parkingLot) {
+        int capacity = parkingLot.capacityConstraint;
+        if (capacity >= 0 && capacity < universe && lotAt[capacity] == parkingLot) {
+            refresh(capacity, parkingLot);
+        }
+    }
+
+    /**
+     * Finds the parking lot with the largest capacity less than or equal to the specified value
+     * among the lots in the given state.
+     *
+     * @param capacityConstraint Capacity constraint to search for.
+     * @param state              State bit the parking lot must have.
+     * @return The closest matching parking lot, or null if none found.
+     */
+    public ParkingLot findSuccesorr(int capacityConstraint, int state) {
+        if (capacityConstraint < 0) {
+            return null;
+        }
+        int capacity = withState[Integer.numberOfTrailingZeros(state)].prev(Math.min(capacityConstraint, universe - 1));
+        return (capacity < 0) ? null : lotAt[capacity];
+    }
+
+    /**
+     * Finds the parking lot with the smallest capacity greater than or equal to the specified value
+     * among the lots in the given state.
+     *
+     * @param capacityConstraint The minimum capacity constraint for the parking lot.
+     * @param state              State bit the parking lot must have.
+     * @return The suitable parking lot, or null if none found.
+     */
+    public ParkingLot findAncestor(int capacityConstraint, int state) {
+        int capacity = withState[Integer.numberOfTrailingZeros(state)].next(Math.max(capacityConstraint, 0));
+        return (capacity < 0) ? null : lotAt[capacity];
+    }
+
+    /**
+     * Visits the parking lots in the given state with a capacity greater than or equal to the specified
+     * value in ascending order, until the visitor returns false. Each step is one successor query.
+     *
+     * @param capacityConstraint The minimum capacity constraint of the visited lots.
+     * @param state              State bit the visited lots must have when they are reached, or 0 to visit every lot.
+     * @param visitor            Called for each lot, returns false to stop the walk.
+     */
+    public void forEachFrom(int capacityConstraint, int state, Predicate<ParkingLot> visitor) {
+        HierarchicalBitset bits = (state == 0) ? present : withState[Integer.numberOfTrailingZeros(state)];
+        int capacity = bits.next(Math.max(capacityConstraint, 0));
+        while (capacity >= 0) {
+            ParkingLot parkingLot = lotAt[capacity];
+            // Bits of lots the visitor changed may be refreshed late, so check the lot itself
+            if ((state == 0 || (parkingLot.state() & state) != 0) && !visitor.test(parkingLot)) {
+                return;
+            }
+            capacity = (capacity == universe - 1) ? -1 : bits.next(capacity + 1);
+        }
+    }
+
+    /**
+     * Counts the trucks in parking lots with a capacity constraint strictly greater than the given one.
+     *
+     * @param capacityConstraint Capacity constraint to count above.
+     * @return Total truck count of the matching parking lots.
+     */
+    public int countGreaterThan(int capacityConstraint) {
+        if (capacityConstraint >= universe - 1) {
+            return 0;
+        }
+        int total = trucksUpTo(universe - 1);
+        return (capacityConstraint < 0) ? total : total - trucksUpTo(capacityConstraint);
+    }
+
+    /**
+     * Finds the parking lot with the smallest capacity strictly greater than the given one.
+     *
+     * @param capacityConstraint The capacity constraint to search above.
+     * @return The next greater parking lot, or null if none exists.
+     */
+    public ParkingLot countHelper(int capacityConstraint) {
+        if (capacityConstraint >= universe - 1) {
+            return null;
+        }
+        int capacity = present.next(Math.max(capacityConstraint + 1, 0));
+        return (capacity < 0) ? null : lotAt[capacity];
+    }
+}
@@ -0,0 +1,146 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Binary snapshot of a simulation: every parking lot with the trucks in its queues, and how far
+ * the command file and the output file had got when it was taken.
+ * A run resumes from a checkpoint by restoring the lots into an empty index and reading the command
+ * file from the recorded offset, so only the commands after the checkpoint are executed again.
+ * The file holds a header (magic, version, commands executed, command file offset, output length,
+ * lot count) followed by each lot in ascending order of capacity: capacity constraint, truck limit,
+ * waiting count, ready count, then load capacity, load and truck ID of each waiting and each ready truck.
+ */
+public class Checkpoint {
+
+    private static final int MAGIC = 0x54534350; // "TSCP"
+    private static final int VERSION = 1; // Format version of the file
+
+    long commands; // Number of commands executed before the checkpoint
+    long inputOffset; // Offset in the command file of the first command after the checkpoint
+    long outputLength; // Length of the output file at the checkpoint
+
+    /**
+     * Writes a checkpoint. The file is first written under a temporary name and then renamed,
+     * so an interrupted write never leaves a partial checkpoint behind.
+     *
+     * @param path         Where the checkpoint is written.
+     * @param lots         Index of all parking lots.
+     * @param trucks       Storage of all trucks.
+     * @param commands     Number of commands executed so far.
+     * @param inputOffset  Offset of the next command in the command file.
+     * @param outputLength Length of the output so far.
+     * @throws IOException If writing fails.
+     */
+    public static void write(Path path, ParkingLotIndex lots, TruckStore trucks, long commands, long inputOffset,
+                             long outputLength) throws IOException {
+        int[] lotCount = new int[1];
+        lots.forEachFrom(Integer.MIN_VALUE, 0, parkingLot -> {
+            lotCount[0]++;
+            return true;
+        });
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(commands);
+            out.writeLong(inputOffset);
+            out.writeLong(outputLength);
+            out.writeInt(lotCount[0]);
+            try {
+                lots.forEachFrom(Integer.MIN_VALUE, 0, parkingLot -> {
+                    try {
+                        out.writeInt(parkingLot.capacityConstraint);
+                        out.writeInt(parkingLot.truckLimit);
+                        out.writeInt(parkingLot.waitingTruckCount);
+                        out.writeInt(parkingLot.readyTruckCount);
+                        writeTrucks(out, parkingLot.waiting, trucks);
+                        writeTrucks(out, parkingLot.ready, trucks);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return true;
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes the trucks of a queue from front to rear.
+     *
+     * @param out    Stream of the checkpoint.
+     * @param queue  The queue.
+     * @param trucks Storage of all trucks.
+     * @throws IOException If writing fails.
+     */
+    private static void writeTrucks(DataOutputStream out, Queue queue, TruckStore trucks) throws IOException {
+        for (int i = 0; i < queue.size; i++) {
+            int truck = queue.queue[(queue.front + i) % queue.queue.length];
+            out.writeInt(trucks.loadCapacity[truck]);
+            out.writeInt(trucks.load[truck]);
+            out.writeInt(trucks.truckId[truck]);
+        }
+    }
+
+    /**
+     * Reads a checkpoint into an empty index and truck store.
+     *
+     * @param path   The checkpoint file.
+     * @param lots   Empty index that receives the parking lots.
+     * @param trucks Empty store that receives the trucks.
+     * @return The positions recorded in the checkpoint.
+     * @throws IOException If reading fails or the file is not a checkpoint.
+     */
+    public static Checkpoint read(Path path, ParkingLotIndex lots, TruckStore trucks) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(path + " is not a version " + VERSION + " checkpoint");
+            }
+            Checkpoint checkpoint = new Checkpoint();
+            checkpoint.commands = in.readLong();
+            checkpoint.inputOffset = in.readLong();
+            checkpoint.outputLength = in.readLong();
+            int lotCount = in.readInt();
+            for (int i = 0; i < lotCount; i++) {
+                ParkingLot parkingLot = new ParkingLot(in.readInt(), in.readInt());
+                int waiting = in.readInt();
+                int ready = in.readInt();
+                for (int j = 0; j < waiting; j++) {
+                    parkingLot.waiting.enqueue(readTruck(in, trucks));
+                }
+                for (int j = 0; j < ready; j++) {
+                    parkingLot.ready.enqueue(readTruck(in, trucks));
+                }
+                parkingLot.waitingTruckCount = waiting;
+                parkingLot.readyTruckCount = ready;
+                parkingLot.totalTruckCount = waiting + ready;
+                lots.insertParkingLot(parkingLot); // Inserted with its trucks, so the summaries start out right
+            }
+            return checkpoint;
+        }
+    }
+
+    /**
+     * Reads one truck and adds it to the store.
+     *
+     * @param in     Stream of the checkpoint.
+     * @param trucks Storage of all trucks.
+     * @return Handle of the truck.
+     * @throws IOException If reading fails.
+     */
+    private static int readTruck(DataInputStream in, TruckStore trucks) throws IOException {
+        int loadCapacity = in.readInt();
+        int load = in.readInt();
+        return trucks.allocate(in.readInt(), loadCapacity, load);
+    }
+}
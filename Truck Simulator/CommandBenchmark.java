@@ -0,0 +1,309 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Measures the parking lot indexes and the command handlers of Main on generated yards.
+ * For each yard size, the AVL Tree, the BPlusTree, the BitsetIndex and a java.util.TreeMap baseline
+ * are filled with the same lots of distinct random capacities, so every insert adds a lot and all of
+ * them hold the yard size. They are timed on insert, the two state-filtered searches, the next-greater
+ * walk behind count, countGreaterThan and delete. The TreeMap cannot filter by state or sum trucks,
+ * so it runs plain floor, ceiling and higher lookups and skips the count. Then add_truck, ready,
+ * count, load and a mix of all commands are run through the handlers of Main on each index; the
+ * mix has the shares of the generated type-style inputs (8% create, 2% delete, 45% add_truck,
+ * 20% ready, 10% count, 15% load).
+ * Each figure is the last of three runs, so the first two warm up the JIT. Reported are million
+ * operations per second, bytes allocated per operation by the running thread, and the tree height.
+ * Run with: java -Xmx8g CommandBenchmark [maxLots] [operations]
+ */
+public class CommandBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean(); // Source of the allocation counter
+    private static long sink; // Results of the timed operations, printed so the JIT cannot drop them
+    private static boolean report; // Whether timed operations print their result
+
+    /**
+     * Times an operation over a sequence of keys and prints a result line.
+     *
+     * @param index     Name of the index, for the report.
+     * @param lots      Number of lots in the yard.
+     * @param operation Name of the operation, for the report.
+     * @param keys      Argument of each call.
+     * @param op        The operation, returning a value that is folded into the sink.
+     * @param tree      Index whose height is reported after the operation, or null to report none.
+     */
+    private static void time(String index, int lots, String operation, int[] keys, IntUnaryOperator op, ParkingLotIndex tree) {
+        long thread = Thread.currentThread().getId();
+        long allocated = THREADS.getThreadAllocatedBytes(thread);
+        long begin = System.nanoTime();
+        long result = 0;
+        for (int key : keys) {
+            result += op.applyAsInt(key);
+        }
+        long elapsed = System.nanoTime() - begin;
+        allocated = THREADS.getThreadAllocatedBytes(thread) - allocated;
+        sink += result;
+        if (!report) {
+            return;
+        }
+        int height = (tree == null) ? -1 : height(tree);
+        System.out.printf("%-7s %,11d  %-16s %8.2f Mops/s %8.1f B/op  %s%n", index, lots, operation,
+                keys.length * 1e3 / elapsed, (double) allocated / keys.length, height < 0 ? "-" : "height " + height);
+    }
+
+    /**
+     * Creates random keys in a range.
+     *
+     * @param random Source of the keys.
+     * @param count  Number of keys.
+     * @param bound  Keys are between 1 and bound.
+     * @return The keys.
+     */
+    private static int[] keys(Random random, int count, int bound) {
+        int[] keys = new int[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = 1 + random.nextInt(bound);
+        }
+        return keys;
+    }
+
+    /**
+     * Creates distinct random keys in a range, so that every insert adds a lot. The range is cut into
+     * count strides of equal width, one key is drawn inside each stride, and the keys are shuffled.
+     *
+     * @param random Source of the keys.
+     * @param count  Number of keys.
+     * @param bound  Keys are between 1 and bound, which must be at least count.
+     * @return The keys, in random order.
+     */
+    private static int[] distinctKeys(Random random, int count, int bound) {
+        int stride = bound / count;
+        int[] keys = new int[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = 1 + i * stride + random.nextInt(stride);
+        }
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int key = keys[i];
+            keys[i] = keys[j];
+            keys[j] = key;
+        }
+        return keys;
+    }
+
+    /**
+     * Returns the height of an index, counting the levels from the root to the deepest leaf.
+     *
+     * @param index The index.
+     * @return The height, or -1 if the index is not a tree.
+     */
+    private static int height(ParkingLotIndex index) {
+        if (index instanceof Tree) {
+            Tree tree = (Tree) index;
+            return tree.getHeight(tree.root) + 1;
+        }
+        if (index instanceof BPlusTree) {
+            return ((BPlusTree) index).height();
+        }
+        return -1;
+    }
+
+    /**
+     * Creates an empty index of the given kind.
+     *
+     * @param name        Name of the index.
+     * @param maxCapacity Largest capacity that will be inserted.
+     * @return The index.
+     */
+    private static ParkingLotIndex create(String name, int maxCapacity) {
+        switch (name) {
+            case "avl":
+                return new Tree(null);
+            case "bplus":
+                return new BPlusTree();
+            default:
+                return new BitsetIndex(maxCapacity);
+        }
+    }
+
+    /**
+     * Times the operations of one index on a yard of the given size.
+     *
+     * @param name       Name of the index.
+     * @param lots       Number of lots.
+     * @param operations Number of calls per lookup operation.
+     * @param seed       Seed of the yard and the keys.
+     */
+    private static void indexOperations(String name, int lots, int operations, long seed) {
+        Random random = new Random(seed);
+        int maxCapacity = lots * 4;
+        int[] capacities = distinctKeys(random, lots, maxCapacity);
+        int[] lookups = keys(random, operations, maxCapacity);
+        int[] deletions = keys(random, lots / 2, maxCapacity);
+
+        if (name.equals("treemap")) {
+            TreeMap<Integer, ParkingLot> map = new TreeMap<>();
+            time(name, lots, "insert", capacities, c -> {
+                map.putIfAbsent(c, new ParkingLot(c, 8));
+                return map.size();
+            }, null);
+            time(name, lots, "floor", lookups, c -> {
+                Map.Entry<Integer, ParkingLot> e = map.floorEntry(c);
+                return (e == null) ? -1 : e.getKey();
+            }, null);
+            time(name, lots, "ceiling", lookups, c -> {
+                Map.Entry<Integer, ParkingLot> e = map.ceilingEntry(c);
+                return (e == null) ? -1 : e.getKey();
+            }, null);
+            time(name, lots, "higher", lookups, c -> {
+                Map.Entry<Integer, ParkingLot> e = map.higherEntry(c);
+                return (e == null) ? -1 : e.getKey();
+            }, null);
+            time(name, lots, "delete", deletions, c -> (map.remove(c) == null) ? 0 : 1, null);
+            return;
+        }
+
+        ParkingLotIndex index = create(name, maxCapacity);
+        time(name, lots, "insert", capacities, c -> {
+            index.insertParkingLot(new ParkingLot(c, 8));
+            return 0;
+        }, index);
+        // Park a truck in every other lot, so that the searches have to skip lots without the state
+        for (int i = 0; i < capacities.length; i += 2) {
+            ParkingLot parkingLot = index.findSuccesorr(capacities[i], ParkingLot.HAS_FREE_SLOT);
+            if (parkingLot != null) {
+                parkingLot.addTruckPL(0);
+                index.lotChanged(parkingLot);
+            }
+        }
+        time(name, lots, "findSuccesorr", lookups, c -> {
+            ParkingLot p = index.findSuccesorr(c, ParkingLot.HAS_FREE_SLOT);
+            return (p == null) ? -1 : p.capacityConstraint;
+        }, null);
+        time(name, lots, "findAncestor", lookups, c -> {
+            ParkingLot p = index.findAncestor(c, ParkingLot.HAS_WAITING);
+            return (p == null) ? -1 : p.capacityConstraint;
+        }, null);
+        time(name, lots, "countHelper", lookups, c -> nextGreater(index, c), null);
+        time(name, lots, "countGreaterThan", lookups, index::countGreaterThan, null);
+        time(name, lots, "delete", deletions, c -> (index.delete(c) == null) ? 0 : 1, index);
+    }
+
+    /**
+     * Finds the capacity of the next greater lot with the countHelper of an index.
+     *
+     * @param index The index.
+     * @param capacity Capacity to search above.
+     * @return The next greater capacity, or -1 if there is none.
+     */
+    private static int nextGreater(ParkingLotIndex index, int capacity) {
+        ParkingLot parkingLot;
+        if (index instanceof Tree) {
+            ParkingLotNode node = ((Tree) index).countHelper(capacity);
+            parkingLot = (node == null) ? null : node.parkingOfNode;
+        } else if (index instanceof BPlusTree) {
+            parkingLot = ((BPlusTree) index).countHelper(capacity);
+        } else {
+            parkingLot = ((BitsetIndex) index).countHelper(capacity);
+        }
+        return (parkingLot == null) ? -1 : parkingLot.capacityConstraint;
+    }
+
+    /**
+     * Times the command handlers of Main on one index on a yard of the given size.
+     *
+     * @param name       Name of the index.
+     * @param lots       Number of lots.
+     * @param operations Number of commands per phase.
+     * @param seed       Seed of the yard and the commands.
+     * @throws IOException Never, the output is discarded.
+     */
+    private static void commands(String name, int lots, int operations, long seed) throws IOException {
+        Random random = new Random(seed);
+        int maxCapacity = lots * 4;
+        ParkingLotIndex index = create(name, maxCapacity);
+        TruckStore trucks = new TruckStore();
+        LoadBatch batch = new LoadBatch(index, trucks);
+        OutputBuffer out = new OutputBuffer(OutputStream.nullOutputStream(), 1 << 16);
+        for (int c : distinctKeys(random, lots, maxCapacity)) {
+            Main.CreateParkingLot(index, c, 1 + random.nextInt(20));
+        }
+        int[] truckIds = {0};
+
+        time(name, lots, "add_truck", keys(random, operations, maxCapacity),
+                c -> Main.addTruck(index, trucks, ++truckIds[0], c), index);
+        time(name, lots, "ready", keys(random, operations / 2, maxCapacity), c -> {
+            try {
+                Main.ready(index, trucks, c, out);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return 0;
+        }, null);
+        time(name, lots, "count", keys(random, operations, maxCapacity), c -> Main.count(index, c), null);
+        int[] amounts = keys(random, operations / 10, maxCapacity);
+        int[] loads = {0};
+        time(name, lots, "load", keys(random, operations / 10, maxCapacity), c -> {
+            try {
+                return batch.run(c, amounts[loads[0]++], out);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }, null);
+
+        int[] mix = keys(random, operations, 100);
+        int[] arguments = keys(random, operations, maxCapacity);
+        int[] position = {0};
+        time(name, lots, "mixed commands", mix, m -> {
+            int c = arguments[position[0]++];
+            try {
+                if (m <= 8) {
+                    Main.CreateParkingLot(index, c, 1 + (m & 15));
+                } else if (m <= 10) {
+                    Main.DeleteParkingLot(index, trucks, c);
+                } else if (m <= 55) {
+                    return Main.addTruck(index, trucks, ++truckIds[0], c);
+                } else if (m <= 75) {
+                    Main.ready(index, trucks, c, out);
+                } else if (m <= 85) {
+                    return Main.count(index, c);
+                } else {
+                    return batch.run(c, c * 5, out);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return 0;
+        }, index);
+    }
+
+    /**
+     * Runs every measurement for yard sizes growing tenfold from 1000 lots to the maximum.
+     *
+     * @param args Optional largest number of lots and number of operations per measurement.
+     * @throws IOException Never, the command output is discarded.
+     */
+    public static void main(String[] args) throws IOException {
+        int maxLots = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        String[] indexes = {"avl", "bplus", "bitset", "treemap"};
+
+        for (int lots = 1000; lots <= maxLots; lots *= 10) {
+            for (String name : indexes) {
+                for (int run = 0; run < 3; run++) {
+                    report = run == 2; // The first runs only warm up
+                    indexOperations(name, lots, operations, lots);
+                    if (!name.equals("treemap")) {
+                        commands(name, lots, operations, lots);
+                    }
+                }
+            }
+        }
+        System.out.println("checksum " + sink);
+    }
+}
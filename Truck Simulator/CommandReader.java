@@ -0,0 +1,293 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads simulator commands from a memory-mapped file.
+ * Command names are matched and integers are parsed directly from the mapped bytes, so reading
+ * a command allocates nothing. Files larger than one mapping are read through a window that is
+ * moved forward whenever fewer than MAX_LINE bytes are left in it.
+ */
+public class CommandReader implements AutoCloseable {
+
+    static final int END = -1; // Returned by next at the end of the input
+    static final int UNKNOWN = 0; // A line that is not a known command, it is skipped
+    static final int CREATE_PARKING_LOT = 1; // create_parking_lot capacity truckLimit
+    static final int DELETE_PARKING_LOT = 2; // delete_parking_lot capacity
+    static final int ADD_TRUCK = 3; // add_truck truckId loadCapacity
+    static final int READY = 4; // ready capacity
+    static final int LOAD = 5; // load capacity loadAmount
+    static final int COUNT = 6; // count capacity
+    static final int[] ARGUMENTS = {0, 2, 1, 2, 1, 2, 1}; // Number of integer arguments, indexed by command code
+
+    private static final byte[][] NAMES = { // Command names, indexed by command code
+            null,
+            "create_parking_lot".getBytes(),
+            "delete_parking_lot".getBytes(),
+            "add_truck".getBytes(),
+            "ready".getBytes(),
+            "load".getBytes(),
+            "count".getBytes()
+    };
+    private static final int MAX_LINE = 4096; // Longest line that is guaranteed to fit in the window
+    private static final long WINDOW = 1L << 30; // Bytes mapped at a time
+
+    private final FileChannel channel; // The command file
+    private final long fileSize; // Size of the command file in bytes
+    private long windowStart; // File offset of the first mapped byte
+    private MappedByteBuffer window; // The mapped part of the file
+    private int limit; // Number of mapped bytes
+    private int position; // Offset of the next byte to read in the window
+    private boolean inLine; // Whether the rest of the current line has not been skipped yet
+
+    /**
+     * Opens a command file.
+     *
+     * @param path Path of the command file.
+     * @throws IOException If the file cannot be opened or mapped.
+     */
+    public CommandReader(Path path) throws IOException {
+        this(path, 0);
+    }
+
+    /**
+     * Opens a command file and starts reading at a given offset, such as one returned by finishLine.
+     *
+     * @param path   Path of the command file.
+     * @param offset File offset of the first line to read.
+     * @throws IOException If the file cannot be opened or mapped.
+     */
+    public CommandReader(Path path, long offset) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        fileSize = channel.size();
+        map(Math.min(offset, fileSize));
+    }
+
+    /**
+     * Maps the part of the file starting at a given offset.
+     *
+     * @param offset File offset of the first byte to map.
+     * @throws IOException If mapping fails.
+     */
+    private void map(long offset) throws IOException {
+        windowStart = offset;
+        limit = (int) Math.min(WINDOW, fileSize - offset);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, limit);
+        position = 0;
+    }
+
+    /**
+     * Moves the window forward if the next line might not fit in the rest of it.
+     *
+     * @throws IOException If mapping fails.
+     */
+    private void ensureLine() throws IOException {
+        if (limit - position < MAX_LINE && windowStart + limit < fileSize) {
+            map(windowStart + position);
+        }
+    }
+
+    /**
+     * Moves to the next line and reads its command name.
+     *
+     * @return The command code, UNKNOWN for an unrecognized line, or END at the end of the input.
+     * @throws IOException If mapping fails.
+     */
+    public int next() throws IOException {
+        return nextLine() ? nextCommand() : END;
+    }
+
+    /**
+     * Moves to the start of the next line, for lines whose fields are read one by one.
+     *
+     * @return true if there is another line, false at the end of the input.
+     * @throws IOException If mapping fails.
+     */
+    public boolean nextLine() throws IOException {
+        if (inLine) {
+            skipLine();
+        }
+        ensureLine();
+        if (position >= limit) {
+            return false;
+        }
+        inLine = true;
+        return true;
+    }
+
+    /**
+     * Reads the next token on the current line as a command name.
+     *
+     * @return The command code, or UNKNOWN if the token is not a command name.
+     */
+    public int nextCommand() {
+        while (position < limit && window.get(position) == ' ') {
+            position++;
+        }
+        int start = position;
+        while (position < limit && !isSeparator(window.get(position))) {
+            position++;
+        }
+        int length = position - start;
+        for (int command = 1; command < NAMES.length; command++) {
+            if (matches(NAMES[command], start, length)) {
+                return command;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Skips the rest of the current line and returns where the next line starts, so that a later
+     * reader can continue from there.
+     *
+     * @return File offset of the next line.
+     * @throws IOException If mapping fails.
+     */
+    public long finishLine() throws IOException {
+        if (inLine) {
+            skipLine();
+            inLine = false;
+        }
+        return Math.min(windowStart + position, fileSize);
+    }
+
+    /**
+     * Moves past the next line break, or to the end of the input.
+     *
+     * @throws IOException If mapping fails.
+     */
+    private void skipLine() throws IOException {
+        while (true) {
+            while (position < limit && window.get(position) != '\n') {
+                position++;
+            }
+            if (position < limit || windowStart + limit >= fileSize) {
+                break;
+            }
+            map(windowStart + position); // A very long line runs past the window
+        }
+        position++; // Step over the line break
+    }
+
+    /**
+     * Checks whether the next token on the current line starts like an integer, so that blank
+     * lines and comments can be skipped before their fields are read.
+     *
+     * @return true if the next token starts with a digit or a minus sign, false otherwise.
+     */
+    public boolean hasNextInt() {
+        while (position < limit && window.get(position) == ' ') {
+            position++;
+        }
+        if (position >= limit) {
+            return false;
+        }
+        byte b = window.get(position);
+        return b == '-' || (b >= '0' && b <= '9');
+    }
+
+    /**
+     * Reads the next integer argument on the current line.
+     *
+     * @return The integer.
+     * @throws NumberFormatException If the line has no further integer or it does not fit in an int.
+     */
+    public int nextInt() {
+        return (int) nextNumber(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Reads the next integer argument on the current line as a long, for values such as ticks that
+     * may exceed the range of an int.
+     *
+     * @return The integer.
+     * @throws NumberFormatException If the line has no further integer or it does not fit in a long.
+     */
+    public long nextLong() {
+        return nextNumber(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reads the next integer on the current line and checks that it lies in a range.
+     * The digits are accumulated as a negative number, so that the smallest value of the range fits.
+     *
+     * @param min Smallest allowed value.
+     * @param max Largest allowed value, equal to -(min + 1).
+     * @return The integer.
+     * @throws NumberFormatException If the line has no further integer or it lies outside the range.
+     */
+    private long nextNumber(long min, long max) {
+        while (position < limit && window.get(position) == ' ') {
+            position++;
+        }
+        boolean negative = position < limit && window.get(position) == '-';
+        if (negative) {
+            position++;
+        }
+        int start = position;
+        long value = 0;
+        while (position < limit) {
+            int digit = window.get(position) - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            if (value < min / 10 || value * 10 < min + digit) {
+                throw new NumberFormatException("Integer out of range at byte " + (windowStart + start));
+            }
+            value = value * 10 - digit;
+            position++;
+        }
+        if (position == start || (position < limit && !isSeparator(window.get(position)))) {
+            throw new NumberFormatException("Expected an integer at byte " + (windowStart + start));
+        }
+        if (negative) {
+            return value;
+        }
+        if (value < -max) {
+            throw new NumberFormatException("Integer out of range at byte " + (windowStart + start));
+        }
+        return -value;
+    }
+
+    /**
+     * Checks whether a byte ends a token.
+     *
+     * @param b The byte.
+     * @return true for a space or a line break, false otherwise.
+     */
+    private static boolean isSeparator(byte b) {
+        return b == ' ' || b == '\n' || b == '\r';
+    }
+
+    /**
+     * Compares a command name with a range of the window.
+     *
+     * @param name   The command name.
+     * @param start  Window offset of the token.
+     * @param length Length of the token.
+     * @return true if the token equals the name, false otherwise.
+     */
+    private boolean matches(byte[] name, int start, int length) {
+        if (name.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (window.get(start + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Closes the command file.
+     *
+     * @throws IOException If closing fails.
+     */
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,117 @@
+import java.util.Arrays;
+
+/**
+ * Thread-safe variant of TruckStore for ConcurrentYard.
+ * The arrays are split into fixed-size chunks that never move, so growing the store never loses a
+ * write made through an older chunk table. Handing out and taking back handles is synchronized;
+ * the fields of a truck are read and written by whoever holds the lock of the lot the truck is in.
+ */
+public class ConcurrentTruckStore {
+
+    private static final int CHUNK_BITS = 14; // log2 of the handles per chunk
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1; // Offset of a handle within its chunk
+
+    private volatile int[][] truckId = new int[0][]; // Chunks of the truck IDs by handle
+    private volatile int[][] load = new int[0][]; // Chunks of the truck loads by handle
+    private volatile int[][] loadCapacity = new int[0][]; // Chunks of the truck load capacities by handle
+    private int[] freeHandles = new int[64]; // Stack of handles that can be reused, guarded by this
+    private int freeCount; // Number of handles on the free stack, guarded by this
+    private int used; // Number of handles ever given out, guarded by this
+
+    /**
+     * Adds a truck to the store.
+     *
+     * @param id          Unique ID of the truck.
+     * @param capacity    Maximum load capacity of the truck.
+     * @param initialLoad Initial load of the truck.
+     * @return The handle of the truck.
+     */
+    public synchronized int allocate(int id, int capacity, int initialLoad) {
+        int handle;
+        if (freeCount > 0) {
+            handle = freeHandles[--freeCount];
+        } else {
+            if ((used >>> CHUNK_BITS) == truckId.length) {
+                addChunk();
+            }
+            handle = used++;
+        }
+        truckId[handle >>> CHUNK_BITS][handle & CHUNK_MASK] = id;
+        loadCapacity[handle >>> CHUNK_BITS][handle & CHUNK_MASK] = capacity;
+        load[handle >>> CHUNK_BITS][handle & CHUNK_MASK] = initialLoad;
+        return handle;
+    }
+
+    /**
+     * Removes a truck from the store so that its handle can be reused.
+     *
+     * @param handle The handle of the truck.
+     */
+    public synchronized void release(int handle) {
+        if (freeCount == freeHandles.length) {
+            freeHandles = Arrays.copyOf(freeHandles, freeCount * 2);
+        }
+        freeHandles[freeCount++] = handle;
+    }
+
+    /**
+     * Returns the number of trucks in the store.
+     *
+     * @return Handles given out and not released.
+     */
+    public synchronized int size() {
+        return used - freeCount;
+    }
+
+    /**
+     * Returns the ID of a truck.
+     *
+     * @param handle The handle of the truck.
+     * @return The truck ID.
+     */
+    public int truckId(int handle) {
+        return truckId[handle >>> CHUNK_BITS][handle & CHUNK_MASK];
+    }
+
+    /**
+     * Returns the capacity a truck has left.
+     *
+     * @param handle The handle of the truck.
+     * @return Load capacity minus current load.
+     */
+    public int remainingCapacity(int handle) {
+        return loadCapacity[handle >>> CHUNK_BITS][handle & CHUNK_MASK] - load[handle >>> CHUNK_BITS][handle & CHUNK_MASK];
+    }
+
+    /**
+     * Adds a specified load to a truck.
+     * If the load reaches the truck's capacity, resets load to 0.
+     *
+     * @param handle  The handle of the truck.
+     * @param addLoad Amount of load to add to the truck.
+     */
+    public void addLoad(int handle, int addLoad) {
+        int[] loads = load[handle >>> CHUNK_BITS];
+        int offset = handle & CHUNK_MASK;
+        loads[offset] += addLoad; // Add the specified load to the current load
+        if (loads[offset] == loadCapacity[handle >>> CHUNK_BITS][offset]) { // Check if the load reaches the capacity
+            loads[offset] = 0; // Reset load to 0 if full capacity is reached
+        }
+    }
+
+    /**
+     * Appends one chunk to every array. The old chunks are shared with the new tables.
+     */
+    private void addChunk() {
+        int chunks = truckId.length + 1;
+        int[][] ids = Arrays.copyOf(truckId, chunks);
+        int[][] loads = Arrays.copyOf(load, chunks);
+        int[][] capacities = Arrays.copyOf(loadCapacity, chunks);
+        ids[chunks - 1] = new int[1 << CHUNK_BITS];
+        loads[chunks - 1] = new int[1 << CHUNK_BITS];
+        capacities[chunks - 1] = new int[1 << CHUNK_BITS];
+        truckId = ids;
+        load = loads;
+        loadCapacity = capacities;
+    }
+}
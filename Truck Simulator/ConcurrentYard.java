@@ -0,0 +1,371 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parking lots and trucks of one yard, safe to use from many dispatcher threads at once.
+ * The lots are kept in a ConcurrentSkipListMap by capacity constraint, and one
+ * ConcurrentSkipListSet per ParkingLot state bit holds the capacities of the lots that have it.
+ * The queues and counters of a lot are only touched while holding the lot's monitor, and the
+ * sets are updated under the same monitor, so a thread never holds two lots at once.
+ *
+ * The successor and ancestor searches are linearizable. A search reads, per state bit, the number
+ * of times some lot started gaining that bit, looks up the set, locks the lot it found and checks
+ * that the lot still has the bit and that no lot started gaining it since. A lot that gains a bit
+ * raises the counter before its own change takes effect and raises a second counter once the
+ * set shows the change, and searches wait until the two agree before they start. So a search that
+ * passes its check had seen every lot that had the bit at that moment, and add_truck, ready and
+ * every single truck move of load take effect at that moment. A load command as a whole is a
+ * sequence of such moves and is not atomic; count is a weakly consistent sum.
+ *
+ * The gain counters are global per state bit, not per capacity range. Every lot that gains a bit
+ * bumps the same two counters, and a search for that bit retries whenever any lot gained it in the
+ * meantime, even far outside the range it looked at. This keeps searches linearizable without
+ * locking the sets, but it means dispatchers contend on three pairs of counters: the yard scales
+ * while lots mostly lose bits or searches mostly succeed, and throughput flattens once many threads
+ * keep filling empty lots at the same time.
+ */
+public class ConcurrentYard {
+
+    private static final int STATES = 3; // Number of state bits of a parking lot
+
+    private final ConcurrentSkipListMap<Integer, ParkingLot> lots = new ConcurrentSkipListMap<>(); // All lots by capacity
+    private final List<ConcurrentSkipListSet<Integer>> withState = new ArrayList<>(STATES); // Capacities whose lot has each state bit, by bit position
+    private final AtomicLong[] gainsStarted = new AtomicLong[STATES]; // Number of times a lot began gaining each bit
+    private final AtomicLong[] gainsFinished = new AtomicLong[STATES]; // Number of those gains already visible in the sets
+    private final ConcurrentTruckStore trucks = new ConcurrentTruckStore(); // Storage of all trucks
+
+    /**
+     * Constructs an empty yard.
+     */
+    public ConcurrentYard() {
+        for (int i = 0; i < STATES; i++) {
+            withState.add(new ConcurrentSkipListSet<>());
+            gainsStarted[i] = new AtomicLong();
+            gainsFinished[i] = new AtomicLong();
+        }
+    }
+
+    /**
+     * Creates a parking lot. Lots whose capacity constraint is already present are ignored.
+     *
+     * @param capacityConstraint The capacity limit for the parking lot.
+     * @param truckLimit         The maximum trucks allowed in the lot.
+     */
+    public void createParkingLot(int capacityConstraint, int truckLimit) {
+        ParkingLot parkingLot = new ParkingLot(capacityConstraint, truckLimit);
+        int gained = parkingLot.state();
+        startGains(gained);
+        try {
+            synchronized (parkingLot) {
+                if (lots.putIfAbsent(capacityConstraint, parkingLot) == null) {
+                    publish(parkingLot);
+                }
+            }
+        } finally {
+            finishGains(gained);
+        }
+    }
+
+    /**
+     * Deletes the parking lot with a given capacity constraint, if there is one. Its trucks leave the yard.
+     *
+     * @param capacityConstraint Capacity of the parking lot to delete.
+     */
+    public void deleteParkingLot(int capacityConstraint) {
+        ParkingLot parkingLot = lots.get(capacityConstraint);
+        if (parkingLot == null) {
+            return;
+        }
+        synchronized (parkingLot) {
+            if (parkingLot.deleted) {
+                return;
+            }
+            parkingLot.deleted = true;
+            publish(parkingLot); // Leaves every set
+            lots.remove(capacityConstraint, parkingLot); // Only now may a new lot take the capacity
+            release(parkingLot.waiting);
+            release(parkingLot.ready);
+        }
+    }
+
+    /**
+     * Adds a truck to the lot with the largest capacity constraint not above its load capacity that has a free slot.
+     *
+     * @param truckId      The truck ID.
+     * @param loadCapacity The load capacity of the truck.
+     * @return The capacity of the parking lot where the truck was added, or -1 if no suitable lot is found.
+     */
+    public int addTruck(int truckId, int loadCapacity) {
+        return place(-1, truckId, loadCapacity);
+    }
+
+    /**
+     * Moves the next truck from waiting to ready in the lot with the smallest capacity constraint
+     * at or above the given one that has a waiting truck.
+     *
+     * @param capacityConstraint Capacity of the parking lot to check.
+     * @return The truck ID and the lot capacity, or null if no truck is found.
+     */
+    public int[] ready(int capacityConstraint) {
+        int bit = bitIndex(ParkingLot.HAS_WAITING);
+        while (true) {
+            long stamp = stableGains(bit);
+            Integer capacity = withState.get(bit).ceiling(capacityConstraint);
+            if (capacity == null) {
+                if (gainsStarted[bit].get() == stamp) {
+                    return null; // No lot had a waiting truck at this moment
+                }
+                continue;
+            }
+            ParkingLot parkingLot = lots.get(capacity);
+            if (parkingLot == null) {
+                continue; // Deleted since the lookup
+            }
+            synchronized (parkingLot) {
+                if (parkingLot.deleted || parkingLot.waitingTruckCount == 0) {
+                    continue; // Lost the lot to another thread
+                }
+                int gained = (parkingLot.readyTruckCount == 0) ? ParkingLot.HAS_READY : 0;
+                startGains(gained);
+                try {
+                    if (gainsStarted[bit].get() != stamp) {
+                        continue; // Some lot may have gained a waiting truck since the lookup
+                    }
+                    int truck = parkingLot.waiting.front();
+                    parkingLot.ready.enqueue(truck);
+                    parkingLot.readyTruckCount++;
+                    parkingLot.waiting.dequeue();
+                    parkingLot.waitingTruckCount--;
+                    publish(parkingLot);
+                    return new int[]{trucks.truckId(truck), parkingLot.capacityConstraint};
+                } finally {
+                    finishGains(gained);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads ready trucks from the lots at or above a capacity constraint in ascending order and moves
+     * each one to the lot with the largest capacity constraint that fits its remaining capacity.
+     *
+     * @param capacityConstraint Parking lot capacity constraint.
+     * @param loadAmount         Load amount to be assigned to trucks.
+     * @return Truck ID and new lot capacity, or -1, of each loaded truck one after the other; empty if no trucks were available.
+     */
+    public int[] load(int capacityConstraint, int loadAmount) {
+        int bit = bitIndex(ParkingLot.HAS_READY);
+        int[] moves = new int[8];
+        int moveCount = 0;
+        int from = capacityConstraint; // Lots below this one were drained or had no ready truck
+        while (loadAmount > 0) {
+            long stamp = stableGains(bit);
+            Integer capacity = withState.get(bit).ceiling(from);
+            if (capacity == null) {
+                if (gainsStarted[bit].get() == stamp) {
+                    break; // No lot at or above from had a ready truck at this moment
+                }
+                continue;
+            }
+            ParkingLot parkingLot = lots.get(capacity);
+            if (parkingLot == null) {
+                continue;
+            }
+            int truck;
+            synchronized (parkingLot) {
+                if (parkingLot.deleted || parkingLot.readyTruckCount == 0) {
+                    continue;
+                }
+                int gained = (parkingLot.totalTruckCount == parkingLot.truckLimit) ? ParkingLot.HAS_FREE_SLOT : 0;
+                startGains(gained);
+                try {
+                    if (gainsStarted[bit].get() != stamp) {
+                        continue;
+                    }
+                    truck = parkingLot.ready.front();
+                    int load = Math.min(parkingLot.capacityConstraint, loadAmount); // Assign load based on lot's capacity and remaining load
+                    loadAmount -= load;
+                    trucks.addLoad(truck, load);
+                    parkingLot.ready.dequeue();
+                    parkingLot.readyTruckCount--;
+                    parkingLot.totalTruckCount--;
+                    publish(parkingLot);
+                } finally {
+                    finishGains(gained);
+                }
+            }
+            from = parkingLot.capacityConstraint;
+
+            if (moveCount + 2 > moves.length) {
+                moves = Arrays.copyOf(moves, moves.length * 2);
+            }
+            moves[moveCount++] = trucks.truckId(truck);
+            moves[moveCount++] = place(truck, 0, trucks.remainingCapacity(truck));
+        }
+        return Arrays.copyOf(moves, moveCount);
+    }
+
+    /**
+     * Counts the trucks in parking lots with a capacity constraint strictly greater than the given one.
+     * The lots are summed one after the other, so under concurrent changes the result is only
+     * exact for the lots at the moment each of them was read.
+     *
+     * @param capacityConstraint Capacity to count above.
+     * @return Total truck count of these parking lots.
+     */
+    public int count(int capacityConstraint) {
+        int total = 0;
+        for (ParkingLot parkingLot : lots.tailMap(capacityConstraint, false).values()) {
+            synchronized (parkingLot) {
+                if (!parkingLot.deleted) {
+                    total += parkingLot.totalTruckCount;
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of trucks in the yard.
+     *
+     * @return Trucks parked in any lot.
+     */
+    public int truckCount() {
+        return trucks.size();
+    }
+
+    /**
+     * Parks a truck in the lot with the largest capacity constraint not above a given value that has a free slot.
+     * A truck that fits no lot leaves the yard.
+     *
+     * @param truck     Handle of a truck that is moved, or -1 to store a new truck.
+     * @param truckId   ID of the new truck, ignored when moving a truck.
+     * @param remaining Remaining capacity of the truck.
+     * @return The capacity of the parking lot where the truck was added, or -1 if no lot is available.
+     */
+    private int place(int truck, int truckId, int remaining) {
+        int bit = bitIndex(ParkingLot.HAS_FREE_SLOT);
+        while (true) {
+            long stamp = stableGains(bit);
+            Integer capacity = withState.get(bit).floor(remaining);
+            if (capacity == null) {
+                if (gainsStarted[bit].get() != stamp) {
+                    continue;
+                }
+                if (truck != -1) {
+                    trucks.release(truck); // No lot had a free slot at this moment
+                }
+                return -1;
+            }
+            ParkingLot parkingLot = lots.get(capacity);
+            if (parkingLot == null) {
+                continue;
+            }
+            synchronized (parkingLot) {
+                if (parkingLot.deleted || parkingLot.totalTruckCount >= parkingLot.truckLimit) {
+                    continue;
+                }
+                int gained = (parkingLot.waitingTruckCount == 0) ? ParkingLot.HAS_WAITING : 0;
+                startGains(gained);
+                try {
+                    if (gainsStarted[bit].get() != stamp) {
+                        continue;
+                    }
+                    parkingLot.addTruckPL((truck == -1) ? trucks.allocate(truckId, remaining, 0) : truck);
+                    publish(parkingLot);
+                    return parkingLot.capacityConstraint;
+                } finally {
+                    finishGains(gained);
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits until every gain of a state bit that has started is visible in its set.
+     *
+     * @param bit Position of the state bit.
+     * @return The number of gains started, to compare with after locking a lot.
+     */
+    private long stableGains(int bit) {
+        while (true) {
+            long started = gainsStarted[bit].get();
+            if (gainsFinished[bit].get() == started) {
+                return started;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Announces that a lot is about to gain the given state bits.
+     *
+     * @param gained The state bits to be gained, may be 0.
+     */
+    private void startGains(int gained) {
+        for (int bit = 0; bit < STATES; bit++) {
+            if ((gained & (1 << bit)) != 0) {
+                gainsStarted[bit].incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Announces that the gains begun with startGains are visible in the sets, or did not happen.
+     *
+     * @param gained The same state bits as passed to startGains.
+     */
+    private void finishGains(int gained) {
+        for (int bit = 0; bit < STATES; bit++) {
+            if ((gained & (1 << bit)) != 0) {
+                gainsFinished[bit].incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Brings the state sets in line with a lot whose monitor the caller holds.
+     *
+     * @param parkingLot The lot.
+     */
+    private void publish(ParkingLot parkingLot) {
+        int state = parkingLot.deleted ? 0 : parkingLot.state();
+        int changed = state ^ parkingLot.yardState;
+        for (int bit = 0; bit < STATES; bit++) {
+            if ((changed & (1 << bit)) == 0) {
+                continue;
+            }
+            if ((state & (1 << bit)) != 0) {
+                withState.get(bit).add(parkingLot.capacityConstraint);
+            } else {
+                withState.get(bit).remove(parkingLot.capacityConstraint);
+            }
+        }
+        parkingLot.yardState = state;
+    }
+
+    /**
+     * Gives back the handles of all trucks in a queue of a deleted lot.
+     *
+     * @param queue The queue.
+     */
+    private void release(Queue queue) {
+        for (int i = 0; i < queue.size; i++) {
+            trucks.release(queue.queue[(queue.front + i) % queue.queue.length]);
+        }
+    }
+
+    /**
+     * Returns the position of a single state bit.
+     *
+     * @param state One of the ParkingLot state bits.
+     * @return Its bit position.
+     */
+    private static int bitIndex(int state) {
+        return Integer.numberOfTrailingZeros(state);
+    }
+}
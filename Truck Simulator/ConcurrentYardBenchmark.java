@@ -0,0 +1,180 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks ConcurrentYard against the single-threaded simulator and measures its throughput.
+ * First a seeded command sequence is run on one thread through both and their outputs must match.
+ * Then dispatcher threads, doubling up to the maximum, issue add_truck, ready and load against one
+ * shared yard, and the trucks left in the lots must equal the trucks added minus the trucks that
+ * found no lot when they were moved.
+ * Run with: java ConcurrentYardBenchmark [maxThreads] [operationsPerThread] [lots]
+ */
+public class ConcurrentYardBenchmark {
+
+    /**
+     * Runs the same random commands through Main and ConcurrentYard and compares the outputs.
+     *
+     * @param commands Number of commands.
+     * @param maxCapacity Largest capacity used.
+     * @param seed Seed of the commands.
+     * @throws IOException Never, the output is kept in memory.
+     */
+    private static void checkAgainstMain(int commands, int maxCapacity, long seed) throws IOException {
+        ParkingLotIndex lots = new Tree(null);
+        TruckStore trucks = new TruckStore();
+        LoadBatch batch = new LoadBatch(lots, trucks);
+        ByteArrayOutputStream expectedBytes = new ByteArrayOutputStream();
+        OutputBuffer expected = new OutputBuffer(expectedBytes, 1 << 16);
+        ConcurrentYard yard = new ConcurrentYard();
+        ByteArrayOutputStream actualBytes = new ByteArrayOutputStream();
+        OutputBuffer actual = new OutputBuffer(actualBytes, 1 << 16);
+
+        Random random = new Random(seed);
+        int truckId = 0;
+        for (int i = 0; i < commands; i++) {
+            int op = random.nextInt(20);
+            int capacity = 1 + random.nextInt(maxCapacity);
+            if (op < 2) {
+                int truckLimit = 1 + random.nextInt(20);
+                Main.CreateParkingLot(lots, capacity, truckLimit);
+                yard.createParkingLot(capacity, truckLimit);
+            } else if (op < 3) {
+                Main.DeleteParkingLot(lots, trucks, capacity);
+                yard.deleteParkingLot(capacity);
+            } else if (op < 11) {
+                truckId++;
+                expected.writeInt(Main.addTruck(lots, trucks, truckId, capacity));
+                actual.writeInt(yard.addTruck(truckId, capacity));
+            } else if (op < 15) {
+                Main.ready(lots, trucks, capacity, expected);
+                int[] moved = yard.ready(capacity);
+                if (moved == null) {
+                    actual.write("-1");
+                } else {
+                    actual.writeInt(moved[0]);
+                    actual.write(' ');
+                    actual.writeInt(moved[1]);
+                }
+            } else if (op < 17) {
+                expected.writeInt(Main.count(lots, capacity));
+                actual.writeInt(yard.count(capacity));
+            } else {
+                int loadAmount = 1 + random.nextInt(maxCapacity * 5);
+                Main.recieveLoad(batch, capacity, loadAmount, expected);
+                int[] moves = yard.load(capacity, loadAmount);
+                for (int m = 0; m < moves.length; m += 2) {
+                    if (m > 0) {
+                        actual.write(" - ");
+                    }
+                    actual.writeInt(moves[m]);
+                    actual.write(' ');
+                    actual.writeInt(moves[m + 1]);
+                }
+                if (moves.length == 0) {
+                    actual.write("-1");
+                }
+            }
+            expected.write('\n');
+            actual.write('\n');
+        }
+        expected.flush();
+        actual.flush();
+        if (!Arrays.equals(expectedBytes.toByteArray(), actualBytes.toByteArray())) {
+            throw new IllegalStateException("ConcurrentYard differs from Main for seed " + seed);
+        }
+    }
+
+    /**
+     * Runs one measurement with the given number of dispatcher threads on a fresh yard.
+     *
+     * @param threads Number of concurrent threads.
+     * @param operations Number of commands each thread issues.
+     * @param lotCount Number of parking lots in the yard.
+     * @return Commands per second.
+     * @throws InterruptedException if interrupted while waiting for the threads.
+     */
+    private static double measure(int threads, int operations, int lotCount) throws InterruptedException {
+        ConcurrentYard yard = new ConcurrentYard();
+        int maxCapacity = lotCount * 4;
+        Random setup = new Random(7);
+        for (int i = 0; i < lotCount; i++) {
+            yard.createParkingLot(1 + setup.nextInt(maxCapacity), 1 + setup.nextInt(20));
+        }
+
+        AtomicLong parked = new AtomicLong(); // Trucks added minus trucks that found no lot when moved
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int firstTruckId = t * operations;
+            long seed = 100 + t;
+            new Thread(() -> {
+                Random random = new Random(seed);
+                long added = 0;
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < operations; i++) {
+                    int capacity = 1 + random.nextInt(maxCapacity);
+                    int op = random.nextInt(10);
+                    if (op < 5) {
+                        if (yard.addTruck(firstTruckId + i, capacity) != -1) {
+                            added++;
+                        }
+                    } else if (op < 8) {
+                        yard.ready(capacity);
+                    } else {
+                        int[] moves = yard.load(capacity, 1 + random.nextInt(maxCapacity));
+                        for (int m = 1; m < moves.length; m += 2) {
+                            if (moves[m] == -1) {
+                                added--;
+                            }
+                        }
+                    }
+                }
+                parked.addAndGet(added);
+                done.countDown();
+            }).start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+
+        if (yard.count(0) != parked.get() || yard.truckCount() != parked.get()) {
+            throw new IllegalStateException("Lost trucks: expected " + parked.get() + ", counted " + yard.count(0)
+                    + ", stored " + yard.truckCount());
+        }
+        return (double) threads * operations * 1e9 / elapsed;
+    }
+
+    /**
+     * Checks the yard against Main, then prints the throughput for thread counts doubling up to the maximum.
+     *
+     * @param args Optional maximum thread count, commands per thread and number of lots.
+     * @throws IOException Never, the output of the check is kept in memory.
+     * @throws InterruptedException if interrupted while waiting for the threads.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 500000;
+        int lotCount = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+
+        for (long seed = 1; seed <= 5; seed++) {
+            checkAgainstMain(200000, 1000, seed);
+        }
+        System.out.println("Single-threaded output matches Main");
+
+        measure(maxThreads, operations / 10 + 1, lotCount); // Warm up
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            double rate = measure(threads, operations, lotCount);
+            System.out.printf("%3d threads: %,.0f commands/s%n", threads, rate);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * Set of integers in [0, size) stored as a hierarchy of 64-ary bitsets.
+ * Level 0 has one bit per integer, and every higher level has one bit per non-empty word of the
+ * level below it. Successor and predecessor queries climb until a word has a candidate bit and
+ * then descend along the highest or lowest set bits, so they take a few word operations per level
+ * and about log64 of the size levels in total.
+ */
+public class HierarchicalBitset {
+
+    private final long[][] levels; // levels[0] holds one bit per integer, each next level summarizes the previous
+    private final int size; // Number of integers the set can hold
+
+    /**
+     * Constructs an empty set for the integers 0 to size - 1.
+     *
+     * @param size Number of integers the set can hold, at least 1.
+     */
+    public HierarchicalBitset(int size) {
+        this.size = size;
+        int height = 1;
+        for (long words = (size + 63L) >>> 6; words > 1; words = (words + 63) >>> 6) {
+            height++;
+        }
+        levels = new long[height][];
+        long words = (size + 63L) >>> 6;
+        for (int level = 0; level < height; level++) {
+            levels[level] = new long[(int) words];
+            words = (words + 63) >>> 6;
+        }
+    }
+
+    /**
+     * Adds an integer to the set.
+     *
+     * @param i The integer, between 0 and size - 1.
+     */
+    public void set(int i) {
+        for (long[] level : levels) {
+            int word = i >>> 6;
+            boolean wasEmpty = level[word] == 0;
+            level[word] |= 1L << i;
+            if (!wasEmpty) {
+                return; // Higher levels already mark this word
+            }
+            i = word;
+        }
+    }
+
+    /**
+     * Removes an integer from the set.
+     *
+     * @param i The integer, between 0 and size - 1.
+     */
+    public void clear(int i) {
+        for (long[] level : levels) {
+            int word = i >>> 6;
+            level[word] &= ~(1L << i);
+            if (level[word] != 0) {
+                return; // The word is still non-empty, so higher levels stay as they are
+            }
+            i = word;
+        }
+    }
+
+    /**
+     * Checks whether an integer is in the set.
+     *
+     * @param i The integer, between 0 and size - 1.
+     * @return true if the integer is in the set, false otherwise.
+     */
+    public boolean get(int i) {
+        return (levels[0][i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * Finds the smallest integer of the set that is greater than or equal to i.
+     *
+     * @param i Where to start searching, at least 0.
+     * @return The successor of i, or -1 if there is none.
+     */
+    public int next(int i) {
+        if (i >= size) {
+            return -1;
+        }
+        int level = 0;
+        while (true) {
+            int word = i >>> 6;
+            if (word >= levels[level].length) {
+                return -1;
+            }
+            long bits = levels[level][word] & (-1L << i); // Candidates at or after i in this word
+            if (bits != 0) {
+                i = (word << 6) + Long.numberOfTrailingZeros(bits);
+                break;
+            }
+            // Nothing left in this word, continue with the next word one level up
+            i = word + 1;
+            level++;
+            if (level == levels.length) {
+                return -1;
+            }
+        }
+        // Descend along the lowest set bits
+        while (level > 0) {
+            level--;
+            i = (i << 6) + Long.numberOfTrailingZeros(levels[level][i]);
+        }
+        return i;
+    }
+
+    /**
+     * Finds the largest integer of the set that is less than or equal to i.
+     *
+     * @param i Where to start searching, at most size - 1.
+     * @return The predecessor of i, or -1 if there is none.
+     */
+    public int prev(int i) {
+        if (i < 0) {
+            return -1;
+        }
+        int level = 0;
+        while (true) {
+            int word = i >>> 6;
+            long bits = levels[level][word] & (-1L >>> (63 - (i & 63))); // Candidates at or before i in this word
+            if (bits != 0) {
+                i = (word << 6) + 63 - Long.numberOfLeadingZeros(bits);
+                break;
+            }
+            // Nothing left in this word, continue with the previous word one level up
+            i = word - 1;
+            level++;
+            if (i < 0 || level == levels.length) {
+                return -1;
+            }
+        }
+        // Descend along the highest set bits
+        while (level > 0) {
+            level--;
+            i = (i << 6) + 63 - Long.numberOfLeadingZeros(levels[level][i]);
+        }
+        return i;
+    }
+}
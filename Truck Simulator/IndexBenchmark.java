@@ -0,0 +1,116 @@
+import java.util.Random;
+
+/**
+ * Compares the AVL Tree, the array-backed BPlusTree and the BitsetIndex as parking lot indexes.
+ * All indexes run the same seeded workload on their own copies of the lots: bulk insertion,
+ * a mix of state-filtered searches, counts and truck arrivals, deletion of half of the lots, then a scan
+ * of the remaining lots in order. The AVL tree also scans them backward with a TreeCursor, which must
+ * see the same lots in reverse. The checksums of all runs must agree, so the benchmark also checks
+ * that the indexes match.
+ * Run with: java IndexBenchmark [lots] [operations]
+ */
+public class IndexBenchmark {
+
+    /**
+     * Runs the workload against one index and prints the time of each phase.
+     *
+     * @param name       Name of the index, for the report.
+     * @param index      The empty index to fill.
+     * @param lots       Number of parking lots to insert.
+     * @param operations Number of mixed operations to run.
+     * @param seed       Seed of the workload, identical for every index.
+     * @return Checksum of all query results.
+     */
+    private static long run(String name, ParkingLotIndex index, int lots, int operations, long seed) {
+        Random random = new Random(seed);
+        int maxCapacity = lots * 4;
+        TruckStore trucks = new TruckStore();
+        long checksum = 0;
+
+        long begin = System.nanoTime();
+        for (int i = 0; i < lots; i++) {
+            index.insertParkingLot(new ParkingLot(1 + random.nextInt(maxCapacity), 1 + random.nextInt(8)));
+        }
+        long inserted = System.nanoTime();
+
+        int truckId = 0;
+        for (int i = 0; i < operations; i++) {
+            int capacity = 1 + random.nextInt(maxCapacity);
+            int op = random.nextInt(4);
+            if (op == 0) {
+                // Park a truck like add_truck does, which fills lots up over time
+                ParkingLot parkingLot = index.findSuccesorr(capacity, ParkingLot.HAS_FREE_SLOT);
+                if (parkingLot != null) {
+                    parkingLot.addTruckPL(trucks.allocate(++truckId, capacity, 0));
+                    index.lotChanged(parkingLot);
+                    checksum += parkingLot.capacityConstraint;
+                }
+            } else if (op == 1) {
+                ParkingLot parkingLot = index.findAncestor(capacity, ParkingLot.HAS_WAITING);
+                checksum += (parkingLot == null) ? -1 : parkingLot.capacityConstraint;
+            } else if (op == 2) {
+                ParkingLot parkingLot = index.findSuccesorr(capacity, ParkingLot.HAS_FREE_SLOT);
+                checksum += (parkingLot == null) ? -1 : parkingLot.capacityConstraint;
+            } else {
+                checksum += index.countGreaterThan(capacity);
+            }
+        }
+        long queried = System.nanoTime();
+
+        for (int i = 0; i < lots / 2; i++) {
+            index.delete(1 + random.nextInt(maxCapacity));
+        }
+        checksum += index.countGreaterThan(0);
+        long deleted = System.nanoTime();
+
+        long[] forward = new long[2]; // Lots and trucks seen by the forward scan
+        index.forEachFrom(Integer.MIN_VALUE, 0, parkingLot -> {
+            forward[0]++;
+            forward[1] += parkingLot.totalTruckCount;
+            return true;
+        });
+        if (index instanceof Tree) {
+            long backwardLots = 0;
+            long backwardTrucks = 0;
+            long above = Long.MAX_VALUE; // Capacity of the lot visited before, the scan must descend
+            for (TreeCursor cursor = ((Tree) index).cursorUpTo(Integer.MAX_VALUE); cursor.valid(); cursor.previous()) {
+                if (cursor.capacity() >= above) {
+                    throw new IllegalStateException("Backward scan out of order at capacity " + cursor.capacity());
+                }
+                above = cursor.capacity();
+                backwardLots++;
+                backwardTrucks += cursor.lot().totalTruckCount;
+            }
+            if (backwardLots != forward[0] || backwardTrucks != forward[1]) {
+                throw new IllegalStateException("Backward scan disagrees with the forward scan");
+            }
+        }
+        checksum += forward[0] + forward[1];
+        long scanned = System.nanoTime();
+
+        System.out.printf("%-6s insert %6d ms, mixed %6d ms, delete %6d ms, scan %6d ms%n", name,
+                (inserted - begin) / 1_000_000, (queried - inserted) / 1_000_000, (deleted - queried) / 1_000_000,
+                (scanned - deleted) / 1_000_000);
+        return checksum;
+    }
+
+    /**
+     * Runs the workload on every index a few times and checks that their results agree.
+     *
+     * @param args Optional number of lots and number of mixed operations.
+     */
+    public static void main(String[] args) {
+        int lots = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+
+        for (int round = 0; round < 3; round++) {
+            long seed = 42 + round;
+            long avl = run("avl", new Tree(null), lots, operations, seed);
+            long bplus = run("bplus", new BPlusTree(), lots, operations, seed);
+            long bitset = run("bitset", new BitsetIndex(lots * 4), lots, operations, seed);
+            if (avl != bplus || avl != bitset) {
+                throw new IllegalStateException("Indexes disagree: " + avl + ", " + bplus + ", " + bitset);
+            }
+        }
+    }
+}
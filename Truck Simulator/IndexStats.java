@@ -0,0 +1,56 @@
+/**
+ * Operation counters of a parking lot index, kept by the index itself and read by SimulationStats.
+ * The counters are plain fields increased on the single simulation thread, so keeping them costs
+ * an increment per event; they are cumulative from the creation of the index.
+ */
+public class IndexStats {
+
+    long inserts; // Parking lots inserted
+    long deletes; // Parking lots deleted
+    long rotations; // AVL rotations made by inserts and deletes
+    long splits; // B+-tree node splits made by inserts
+    long searches; // State-filtered successor and ancestor searches
+    long searchVisits; // Nodes visited by those searches
+    long stateFlips; // State bits gained or lost by lots, as reported through lotChanged
+    int height; // Current height of the tree, in levels
+    int maxHeight; // Largest height the tree has had
+
+    /**
+     * Records the current height of the tree.
+     *
+     * @param levels Height of the tree, in levels.
+     */
+    void setHeight(int levels) {
+        height = levels;
+        maxHeight = Math.max(maxHeight, levels);
+    }
+
+    /**
+     * Counts the state bits a lot gained or lost since it was last reported, and remembers its current state.
+     *
+     * @param parkingLot The lot that was reported.
+     */
+    void countFlips(ParkingLot parkingLot) {
+        int state = parkingLot.state();
+        stateFlips += Integer.bitCount(state ^ parkingLot.publishedState);
+        parkingLot.publishedState = state;
+    }
+
+    /**
+     * Appends the counters as a JSON object.
+     *
+     * @param json The dump being built.
+     */
+    void appendJson(StringBuilder json) {
+        json.append("{\"inserts\":").append(inserts)
+                .append(",\"deletes\":").append(deletes)
+                .append(",\"rotations\":").append(rotations)
+                .append(",\"splits\":").append(splits)
+                .append(",\"searches\":").append(searches)
+                .append(",\"visitsPerSearch\":").append(searches == 0 ? 0 : (double) searchVisits / searches)
+                .append(",\"stateFlips\":").append(stateFlips)
+                .append(",\"height\":").append(height)
+                .append(",\"maxHeight\":").append(maxHeight)
+                .append('}');
+    }
+}
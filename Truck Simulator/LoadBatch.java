@@ -0,0 +1,258 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * Carries out load commands as batches against a parking lot index.
+ * The lots with ready trucks are walked once in ascending order with forEachFrom instead of
+ * searching from the root for every lot. Changes to the lots are collected and only reported to
+ * the index when a search needs them or when the batch ends, so draining many trucks from one lot
+ * costs a single index update. Trucks that leave with the same remaining capacity share the lot
+ * found for the first of them for as long as that answer is known to stay the same.
+ * The output is the same as loading the lots one truck at a time.
+ * One instance serves every load command of a simulation and keeps its scratch arrays between
+ * commands, so a load allocates nothing once they have grown large enough.
+ */
+public class LoadBatch {
+
+    private static final ParkingLot NO_LOT = new ParkingLot(-1, 0); // Cached answer when no lot fits
+
+    private final ParkingLotIndex lots; // Index of all parking lots
+    private final TruckStore trucks; // Storage of all trucks
+    private final Predicate<ParkingLot> drainer = this::drain; // Visitor of the walk, created once
+    private final ArrayList<ParkingLot> changedLots = new ArrayList<>(); // Lots not yet reported to the index
+
+    private int[] targetKeys = new int[64]; // Remaining capacities in the target cache, open addressing
+    private ParkingLot[] targetLots = new ParkingLot[64]; // Lot found for each cached remaining capacity
+    private int[] targetStamps = new int[64]; // Generation in which each cache slot was filled
+    private int targetGeneration = 1; // Current generation, older slots count as empty
+    private int targetCount; // Number of slots filled in the current generation
+
+    private int[] movedIds = new int[16]; // Truck ID of every truck loaded by the current batch
+    private int[] movedTo = new int[16]; // New lot capacity of every truck loaded by the current batch, or -1
+    private int[] movedTrucks = new int[16]; // Handle of every truck loaded by the current batch, or -1 if it left
+    private int moveCount; // Number of trucks loaded by the current batch
+
+    private int loadAmount; // Load that is still to be distributed
+    private int freedLots; // Number of full lots that got a free slot during this batch
+    private int targetsFreedLots; // Value of freedLots when the cached targets were found
+
+    /**
+     * Constructs a batch runner for the load commands of one simulation.
+     * @param lots Index of all parking lots.
+     * @param trucks Storage of all trucks.
+     */
+    public LoadBatch(ParkingLotIndex lots, TruckStore trucks) {
+        this.lots = lots;
+        this.trucks = trucks;
+    }
+
+    /**
+     * Loads the ready trucks of the lots at or above a capacity constraint and moves them to new lots,
+     * then writes each loaded truck as "truckId lotCapacity", separated by " - ".
+     * @param capacityConstraint Parking lot capacity constraint.
+     * @param loadAmount Load amount to be assigned to trucks.
+     * @param out Where the loaded trucks are written.
+     * @return Number of trucks loaded, 0 if no trucks were available.
+     * @throws IOException If writing the output fails.
+     */
+    public int run(int capacityConstraint, int loadAmount, OutputBuffer out) throws IOException {
+        this.loadAmount = loadAmount;
+        moveCount = 0;
+        freedLots = 0;
+        targetsFreedLots = 0;
+        clearTargets();
+        if (loadAmount > 0) {
+            lots.forEachFrom(capacityConstraint, ParkingLot.HAS_READY, drainer);
+        }
+        flush();
+        for (int i = 0; i < moveCount; i++) {
+            if (i > 0) {
+                out.write(" - ");
+            }
+            out.writeInt(movedIds[i]);
+            out.write(' ');
+            out.writeInt(movedTo[i]);
+        }
+        return moveCount;
+    }
+
+    /**
+     * Returns the number of trucks loaded by the last batch.
+     * @return Number of trucks loaded, 0 if no trucks were available.
+     */
+    public int moveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Returns the lot a truck of the last batch was moved to.
+     * @param move Position of the truck among the trucks loaded by the last batch.
+     * @return Capacity of the new lot of the truck, or -1 if it left the simulation.
+     */
+    public int movedTo(int move) {
+        return movedTo[move];
+    }
+
+    /**
+     * Returns the handle of a truck of the last batch.
+     * @param move Position of the truck among the trucks loaded by the last batch.
+     * @return Handle of the truck in its new lot, or -1 if it left the simulation.
+     */
+    public int movedTruck(int move) {
+        return movedTrucks[move];
+    }
+
+    /**
+     * Loads the ready trucks of one lot while load remains.
+     * @param parkingLot The lot to drain.
+     * @return true if load remains for the next lot, false otherwise.
+     */
+    private boolean drain(ParkingLot parkingLot) {
+        while (parkingLot.readyTruckCount > 0 && loadAmount > 0) {
+            int truck = parkingLot.ready.front(); // Access the front truck in the ready queue
+            int load = Math.min(parkingLot.capacityConstraint, loadAmount); // Assign load based on lot's capacity and remaining load
+            loadAmount -= load;
+            trucks.addLoad(truck, load);
+            parkingLot.ready.dequeue();
+            parkingLot.readyTruckCount--;
+            if (parkingLot.totalTruckCount == parkingLot.truckLimit) {
+                freedLots++; // A full lot gets a free slot, which may change where trucks go
+            }
+            parkingLot.totalTruckCount--;
+            markChanged(parkingLot);
+
+            if (moveCount == movedIds.length) {
+                movedIds = Arrays.copyOf(movedIds, moveCount * 2);
+                movedTo = Arrays.copyOf(movedTo, moveCount * 2);
+                movedTrucks = Arrays.copyOf(movedTrucks, moveCount * 2);
+            }
+            movedIds[moveCount] = trucks.truckId[truck];
+            movedTo[moveCount] = place(truck);
+            movedTrucks[moveCount] = (movedTo[moveCount] < 0) ? -1 : truck; // Trucks that fit no lot were released
+            moveCount++;
+        }
+        return loadAmount > 0;
+    }
+
+    /**
+     * Adds a loaded truck to the lot with the largest capacity constraint that fits its remaining capacity.
+     * A truck that fits no lot leaves the simulation.
+     * @param truck Handle of the truck.
+     * @return The capacity of the parking lot where the truck was added, or -1 if no lot is available.
+     */
+    private int place(int truck) {
+        int remaining = trucks.loadCapacity[truck] - trucks.load[truck];
+        if (targetsFreedLots != freedLots) {
+            // A lot became free again, so any cached answer may now have a better fit
+            clearTargets();
+            targetsFreedLots = freedLots;
+        }
+        int slot = targetSlot(remaining);
+        ParkingLot target = (targetStamps[slot] == targetGeneration) ? targetLots[slot] : null;
+        if (target == null || (target != NO_LOT && target.totalTruckCount >= target.truckLimit)) {
+            flush(); // The search needs the index to see every change so far
+            target = lots.findSuccesorr(remaining, ParkingLot.HAS_FREE_SLOT);
+            if (target == null) {
+                target = NO_LOT;
+            }
+            slot = putTarget(slot, remaining, target);
+        }
+        if (target == NO_LOT) {
+            trucks.release(truck);
+            return -1;
+        }
+        target.addTruckPL(truck);
+        markChanged(target);
+        return target.capacityConstraint;
+    }
+
+    /**
+     * Finds the cache slot of a remaining capacity, or the empty slot where it would go.
+     * @param remaining The remaining capacity.
+     * @return Index of the slot.
+     */
+    private int targetSlot(int remaining) {
+        int mask = targetKeys.length - 1;
+        int slot = (remaining * 0x9E3779B9) >>> 7 & mask;
+        while (targetStamps[slot] == targetGeneration && targetKeys[slot] != remaining) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Stores the lot found for a remaining capacity, growing the cache when it is half full.
+     * @param slot Slot returned by targetSlot for the remaining capacity.
+     * @param remaining The remaining capacity.
+     * @param target The lot found, or NO_LOT.
+     * @return The slot that now holds the entry.
+     */
+    private int putTarget(int slot, int remaining, ParkingLot target) {
+        if (targetStamps[slot] != targetGeneration) {
+            if (2 * (targetCount + 1) > targetKeys.length) {
+                growTargets();
+                slot = targetSlot(remaining);
+            }
+            targetCount++;
+            targetStamps[slot] = targetGeneration;
+            targetKeys[slot] = remaining;
+        }
+        targetLots[slot] = target;
+        return slot;
+    }
+
+    /**
+     * Doubles the target cache and moves the current entries into it.
+     */
+    private void growTargets() {
+        int[] oldKeys = targetKeys;
+        ParkingLot[] oldLots = targetLots;
+        int[] oldStamps = targetStamps;
+        int oldGeneration = targetGeneration;
+        targetKeys = new int[oldKeys.length * 2];
+        targetLots = new ParkingLot[oldKeys.length * 2];
+        targetStamps = new int[oldKeys.length * 2];
+        targetGeneration = 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldStamps[i] == oldGeneration) {
+                int slot = targetSlot(oldKeys[i]);
+                targetStamps[slot] = targetGeneration;
+                targetKeys[slot] = oldKeys[i];
+                targetLots[slot] = oldLots[i];
+            }
+        }
+    }
+
+    /**
+     * Empties the target cache by starting a new generation.
+     */
+    private void clearTargets() {
+        targetGeneration++;
+        targetCount = 0;
+    }
+
+    /**
+     * Remembers that a lot has to be reported to the index.
+     * @param parkingLot The lot that changed.
+     */
+    private void markChanged(ParkingLot parkingLot) {
+        if (!parkingLot.pendingUpdate) {
+            parkingLot.pendingUpdate = true;
+            changedLots.add(parkingLot);
+        }
+    }
+
+    /**
+     * Reports all changed lots to the index.
+     */
+    private void flush() {
+        for (int i = 0; i < changedLots.size(); i++) {
+            ParkingLot parkingLot = changedLots.get(i);
+            parkingLot.pendingUpdate = false;
+            lots.lotChanged(parkingLot);
+        }
+        changedLots.clear();
+    }
+}
@@ -1,284 +1,279 @@
-import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Scanner;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 public class Main {
 
     /**
-     * Creates a parking lot and adds it to the necessary trees.
-     * @param treeForAddTruck Tree where trucks are added.
-     * @param treeCount Tree for counting trucks.
+     * Creates a parking lot and adds it to the index.
+     * @param lots Index of all parking lots.
      * @param capacityConstraint The capacity limit for the parking lot.
      * @param truckLimit The maximum trucks allowed in the lot.
      */
-    public static void CreateParkingLot(Tree treeForAddTruck,Tree treeCount,int capacityConstraint,int truckLimit){
+    public static void CreateParkingLot(ParkingLotIndex lots,int capacityConstraint,int truckLimit){
         ParkingLot parkingLot=new ParkingLot(capacityConstraint,truckLimit);
-        treeForAddTruck.insertParkingLot(parkingLot);
-        treeCount.insertParkingLot(parkingLot);
+        lots.insertParkingLot(parkingLot);
     }
 
     /**
-     * Deletes a parking lot from all relevant trees.
-     * @param treeForAddTruck Tree for adding trucks.
-     * @param treeForReady Tree for ready trucks.
-     * @param treeForLoad Tree for loaded trucks.
-     * @param treeCount Tree for counting trucks.
+     * Deletes a parking lot from the index. Its trucks leave the simulation.
+     * @param lots Index of all parking lots.
+     * @param trucks Storage of all trucks.
      * @param capacityConstraint Capacity of the parking lot to delete.
+     * @return The deleted parking lot, whose queues still list the released handles, or null if there was none.
      */
-    public static void DeleteParkingLot(Tree treeForAddTruck,Tree treeForReady,Tree treeForLoad,Tree treeCount,int capacityConstraint){
-        treeForAddTruck.delete(capacityConstraint);
-        treeForReady.delete(capacityConstraint);
-        treeForLoad.delete(capacityConstraint);
-        treeCount.delete(capacityConstraint);
+    public static ParkingLot DeleteParkingLot(ParkingLotIndex lots,TruckStore trucks,int capacityConstraint){
+        ParkingLot parkingLot = lots.delete(capacityConstraint);
+        if (parkingLot != null) {
+            trucks.releaseAll(parkingLot.waiting); //free the handles of the trucks in the deleted lot
+            trucks.releaseAll(parkingLot.ready);
+        }
+        return parkingLot;
     }
     /**
      * Adds a truck to the closest available parking lot that can hold it.
-     * @param treeForAddTruck Tree for adding trucks.
-     * @param treeForReady Tree for ready trucks.
+     * @param lots Index of all parking lots.
+     * @param trucks Storage of all trucks.
      * @param truckId The truck ID.
      * @param loadCapacity The load capacity of the truck.
      * @return The capacity of the parking lot where the truck was added, or -1 if no suitable lot is found.
      */
-    public static int addTruck(Tree treeForAddTruck,Tree treeForReady, int truckId, int loadCapacity) {
-        Truck truck = new Truck(truckId, loadCapacity);
-        ParkingLotNode currentNode = treeForAddTruck.findSuccesorr(loadCapacity);
-        if (currentNode==null){
-            return -1; //Return -1 if no suitable parkinglot is found
-        }
-
-        currentNode.parkingOfNode.addTruckPL(truck);//add truck to parking lot
-
-        //If current parking lot is suitable for getting ready command add it to tree for Ready command
-        if (currentNode.parkingOfNode.waitingTruckCount==1){
-            treeForReady.insertParkingLot(currentNode.parkingOfNode);
-        }
-        //If parking lot have no more truck limit to accept truck remove it from addTruck tree
-        if(currentNode.parkingOfNode.totalTruckCount == currentNode.parkingOfNode.truckLimit){
-
-            int nodetemp=currentNode.parkingOfNode.capacityConstraint;
-            treeForAddTruck.delete(currentNode.parkingOfNode.capacityConstraint);
-            return nodetemp;
+    public static int addTruck(ParkingLotIndex lots, TruckStore trucks, int truckId, int loadCapacity) {
+        ParkingLot parkingLot = parkTruck(lots, trucks, truckId, loadCapacity);
+        if (parkingLot==null){
+            return -1; //Return -1 if no parking lot with a free slot is found
         }
-
-        return currentNode.parkingOfNode.capacityConstraint;//return the current parking lots capacity constraint
+        return parkingLot.capacityConstraint;//return the current parking lots capacity constraint
     }
 
     /**
-     * Adds a truck with some load to the closest parking lot that can hold it to transfer trucks around parking lots.
-     * @param treeForAddTruck Tree for adding trucks.
-     * @param treeForReady Tree for ready trucks.
+     * Adds a truck to the closest available parking lot that can hold it, for callers that need the lot
+     * itself. The new truck is the last one in the waiting queue of the returned lot.
+     * @param lots Index of all parking lots.
+     * @param trucks Storage of all trucks.
      * @param truckId The truck ID.
-     * @param loadCapacity The total load capacity of the truck.
-     * @param load The initial load on the truck.
-     * @return The capacity of the parking lot where the truck was added, or -1 if no lot is available.
+     * @param loadCapacity The load capacity of the truck.
+     * @return The parking lot where the truck was added, or null if no suitable lot is found.
      */
-    public static int addTruck(Tree treeForAddTruck,Tree treeForReady, int truckId,int loadCapacity,int load) {
-        Truck truck = new Truck(truckId,loadCapacity, load);//initailize a new truck
-        int tempCapacity=loadCapacity-load;//temp capacity is the capacity left in truck
-        ParkingLotNode currentNode = treeForAddTruck.findSuccesorr(tempCapacity);
-        if (currentNode==null){
-            return -1;
-        }
-
-        currentNode.parkingOfNode.addTruckPL(truck);
-        //if parking lot is suitable for Ready command add it to ready tree
-        if (currentNode.parkingOfNode.waitingTruckCount==1){
-            treeForReady.insertParkingLot(currentNode.parkingOfNode);
-
+    public static ParkingLot parkTruck(ParkingLotIndex lots, TruckStore trucks, int truckId, int loadCapacity) {
+        ParkingLot parkingLot = lots.findSuccesorr(loadCapacity, ParkingLot.HAS_FREE_SLOT);
+        if (parkingLot==null){
+            return null;
         }
-        //if parking lot is full remove it from add truck tree
-        if(currentNode.parkingOfNode.totalTruckCount == currentNode.parkingOfNode.truckLimit){
 
-            int nodetemp=currentNode.parkingOfNode.capacityConstraint;
-            treeForAddTruck.delete(currentNode.parkingOfNode.capacityConstraint);
-            return nodetemp;
-        }
-        return currentNode.parkingOfNode.capacityConstraint;
+        parkingLot.addTruckPL(trucks.allocate(truckId, loadCapacity, 0)); //store the truck only once it has a lot
+        lots.lotChanged(parkingLot); //the lot may now be full and has a waiting truck
+        return parkingLot;
     }
 
     /**
-     * Moves the next truck from waiting to ready in a parking lot.
-     * @param treeForReady Tree for ready trucks.
-     * @param treeForLoad Tree for loaded trucks.
+     * Moves the next truck from waiting to ready in a parking lot and writes "truckId lotCapacity",
+     * or "-1" if no truck is found.
+     * @param lots Index of all parking lots.
+     * @param trucks Storage of all trucks.
      * @param capacityConstraint Capacity of the parking lot to check.
-     * @return Truck ID and parking lot capacity, or "-1" if no truck is found.
+     * @param out Where the result is written.
+     * @throws IOException If writing the output fails.
      */
-   public static String ready(Tree treeForReady,Tree treeForLoad,int capacityConstraint) {
+   public static void ready(ParkingLotIndex lots,TruckStore trucks,int capacityConstraint,OutputBuffer out) throws IOException {
 
-        ParkingLotNode parkingLot = treeForReady.findAncestor(capacityConstraint);
+        ParkingLot parkingLot = lots.findAncestor(capacityConstraint, ParkingLot.HAS_WAITING);
 
         if (parkingLot==null){
-            return "-1";
+            out.write("-1");
+            return;
         }
                 //move the specific truck to ready line from waiting line
-                Truck s=parkingLot.parkingOfNode.waiting.front();
-                parkingLot.parkingOfNode.ready.enqueue(s);
-                parkingLot.parkingOfNode.readyTruckCount++;
-                parkingLot.parkingOfNode.waiting.dequeue();
-                parkingLot.parkingOfNode.waitingTruckCount--;
-                treeForLoad.insertParkingLot(parkingLot.parkingOfNode);
-
-                //If parking lot is suitable for load command add it to treeForLoad
-                if (parkingLot.parkingOfNode.readyTruckCount==1){
-                    treeForLoad.insertParkingLot(parkingLot.parkingOfNode);
-                }
-                String temp=s.truckId+" "+parkingLot.parkingOfNode.capacityConstraint;
-                //if parking lot is not suitable for ready command any more delete it from TreeForReady tree
-                if (parkingLot.parkingOfNode.waitingTruckCount==0){
-                    treeForReady.delete(parkingLot.parkingOfNode.capacityConstraint);
-                }
-
-
-                return temp; //return id of truck and capacity constraint of parking lot
+                int s=parkingLot.waiting.front();
+                parkingLot.ready.enqueue(s);
+                parkingLot.readyTruckCount++;
+                parkingLot.waiting.dequeue();
+                parkingLot.waitingTruckCount--;
+                lots.lotChanged(parkingLot); //the lot now has a ready truck and may have no waiting one
+
+                out.writeInt(trucks.truckId[s]); //write id of truck and capacity constraint of parking lot
+                out.write(' ');
+                out.writeInt(parkingLot.capacityConstraint);
     }
     /**
-     * Counts the total trucks in parking lots with a capacity greater than or equal to the specified one.
-     * @param treeForCount Tree for counting trucks.
-     * @param capacityConstraint Minimum capacity to count from.
+     * Counts the total trucks in parking lots with a capacity greater than the specified one.
+     * Uses the subtree truck counts of the index, so it takes a single descent.
+     * @param lots Index of all parking lots.
+     * @param capacityConstraint Capacity to count above.
      * @return Total truck count in these parking lots.
      */
-    public static int count(Tree treeForCount,int capacityConstraint){
-
-        ParkingLotNode current = treeForCount.countHelper(capacityConstraint);//start counting from specialized count
-        int truckCount = 0;//Initialize truck count
-
-        //Add truckcount count of trucks till there is no suitable parking lot left
-        while (current != null)
-        {
-            truckCount += current.parkingOfNode.totalTruckCount;
-            current = treeForCount.findNextGreater(current);
-        }
-
-        return truckCount;
+    public static int count(ParkingLotIndex lots,int capacityConstraint){
+        return lots.countGreaterThan(capacityConstraint);
     }
 
     /**
      * Loads trucks from parking lots and transfers to other lots if needed.
-     * @param treeForLoad Tree for loaded trucks.
-     * @param treeForAddTruck Tree for adding trucks.
-     * @param treeForReady Tree for ready trucks.
+     * The lots are walked and updated as one batch, see LoadBatch. Writes each loaded truck with the
+     * capacity of its new lot, separated by " - ", or "-1" if no trucks are available.
+     * @param batch Batch runner over the parking lots and trucks of the simulation.
      * @param capacityConstraint Parking lot capacity constraint.
      * @param loadAmount Load amount to be assigned to trucks.
-     * @return A list with truck ID and lot capacity constraint, or {-1, -1} if no trucks available.
+     * @param out Where the result is written.
+     * @throws IOException If writing the output fails.
      */
-    public static ArrayList<int[]> recieveLoad(Tree treeForLoad,Tree treeForAddTruck,Tree treeForReady, int capacityConstraint, int loadAmount){
-        ArrayList<int[]> array = new ArrayList<>(); // Initialize list to store results
-        ParkingLotNode parkingLot = treeForLoad.findAncestor(capacityConstraint); // Find the first suitable parking lot
-
-        // Loop while there is load to distribute and parking lots are available
-        while (loadAmount > 0 && parkingLot != null) {
-            // Continue while there are trucks ready in the parking lot and load remains
-            while (parkingLot.parkingOfNode.readyTruckCount > 0 && loadAmount > 0) {
-                int[] output = new int[2]; // Array to store truck ID and capacity constraint of the lot
-                Truck k = parkingLot.parkingOfNode.ready.front(); // Access the front truck in the ready queue
-                int tempId = k.truckId; // Store truck ID for output
-                int tempLoadCapacity = k.loadCapacity; // Store truck's load capacity for potential redistribution
-                int load = Math.min(parkingLot.parkingOfNode.capacityConstraint, loadAmount); // Assign load based on lot's capacity and remaining load
-                loadAmount -= load; // Reduce the remaining load by the amount assigned
-                parkingLot.parkingOfNode.ready.front().addLoad(load); // Add load to the front truck in the ready queue
-                int tempLoad = k.load; // Store the new load of the truck after assignment
-                parkingLot.parkingOfNode.ready.dequeue(); // Remove the truck from the ready queue
-                parkingLot.parkingOfNode.readyTruckCount--; // Decrease ready truck count in the parking lot
-                parkingLot.parkingOfNode.totalTruckCount--; // Decrease total truck count in the parking lot
-
-                // If the lot has space for more trucks after the load assignment
-                if (parkingLot.parkingOfNode.totalTruckCount == parkingLot.parkingOfNode.truckLimit - 1) {
-                    treeForAddTruck.insertParkingLot(parkingLot.parkingOfNode); // Add the lot back to treeForAddTruck
-                }
-
-                // Try to add the truck to a new parking lot if needed and get the lot’s capacity constraint
-                int s = addTruck(treeForAddTruck, treeForReady, tempId, tempLoadCapacity, tempLoad);
-                output[0] = tempId; // Set truck ID in output
-                output[1] = s; // Set capacity constraint of the lot the truck was added to
-                array.add(output); // Add the truck and lot information to the result list
-            }
-            int temp = parkingLot.parkingOfNode.capacityConstraint; // Store current parking lot's capacity constraint
-
-            // If no more ready trucks are left in the lot, remove it from treeForLoad
-            if (parkingLot.parkingOfNode.readyTruckCount == 0) {
-                treeForLoad.delete(parkingLot.parkingOfNode.capacityConstraint);
-            }
-
-            // Move to the next parking lot with a greater capacity constraint
-            parkingLot = treeForLoad.findAncestor(temp + 1);
+    public static void recieveLoad(LoadBatch batch, int capacityConstraint, int loadAmount, OutputBuffer out) throws IOException {
+        if (batch.run(capacityConstraint, loadAmount, out) == 0) {
+            out.write("-1"); // Write -1 if no trucks were loaded
         }
+    }
 
-        // If no trucks were loaded, return list containing {-1, -1}
-        if (array.size() == 0) {
-            array.add(new int[]{-1, -1});
-            return array;
+    /**
+     * Executes one command and writes its result line, if it has one.
+     * @param command The CommandReader command code.
+     * @param first First argument of the command, 0 if it has none.
+     * @param second Second argument of the command, 0 if it has none.
+     * @param lots Index of all parking lots.
+     * @param trucks Storage of all trucks.
+     * @param batch Batch runner over the same lots and trucks, for load commands.
+     * @param out Where the result is written.
+     * @throws IOException If writing the output fails.
+     */
+    public static void execute(int command, int first, int second, ParkingLotIndex lots, TruckStore trucks,
+                               LoadBatch batch, OutputBuffer out) throws IOException {
+        switch (command) {
+            case CommandReader.CREATE_PARKING_LOT:
+                // Create a new parking lot with specified capacity and truck limit
+                CreateParkingLot(lots, first, second);
+                break;
+            case CommandReader.DELETE_PARKING_LOT:
+                // Delete a parking lot with the specified capacity constraint
+                DeleteParkingLot(lots, trucks, first);
+                break;
+            case CommandReader.ADD_TRUCK:
+                // Add a truck with specified ID and load capacity
+                out.writeInt(addTruck(lots, trucks, first, second));
+                out.write('\n'); // Write the result to the output file
+                break;
+            case CommandReader.READY:
+                // Move the next truck from waiting to ready in the specified parking lot
+                ready(lots, trucks, first, out);
+                out.write('\n'); // Write the result to the output file
+                break;
+            case CommandReader.COUNT:
+                // Count the number of trucks in parking lots with capacity greater than the specified limit
+                out.writeInt(count(lots, first));
+                out.write('\n'); // Write the result to the output file
+                break;
+            case CommandReader.LOAD:
+                // Distribute load among trucks in parking lots and move them if necessary
+                recieveLoad(batch, first, second, out);
+                out.write('\n'); // New line after each command
+                break;
+            default:
+                break; // Lines that are not commands are ignored
         }
-        return array; // Return the result list of trucks and parking lot constraints
     }
 
     /**
      * Main method that processes commands from an input file to manage parking lots and trucks.
      * Reads each command, executes the corresponding operation, and writes results to an output file.
-     * @param args Command-line arguments (not used here).
+     * Usage: java Main [bplus | bitset=MAX] [checkpoint=N] [resume=FILE | whatif=FILE] [stats=FILE [stats-every=N] [slow-ns=N]] [input [output]]
+     * @param args Command-line arguments: "bplus" to index the parking lots with a B+-tree instead of the AVL tree,
+     *             or "bitset=MAX" to use bitsets over the capacities 0 to MAX when that range is known up front;
+     *             "checkpoint=N" to write a checkpoint named after the output and the command count every N commands;
+     *             "resume=FILE" to continue an interrupted run from a checkpoint with the same input and output,
+     *             or "whatif=FILE" to start from the state of a checkpoint and run a different input into a new output;
+     *             "stats=FILE" to time every command and append a stats dump to FILE every N commands (1,000,000 by default)
+     *             and at the end, with commands of at least "slow-ns" nanoseconds (1 ms by default) reported as JFR events;
+     *             followed by the input path (type1-large.txt by default) and the output path (output.txt by default).
      * @throws IOException If there's an error with file reading or writing.
      */
     public static void main(String[] args) throws IOException {
 
-        // Initialize trees to manage different aspects of parking lot and truck management
-        Tree treeForLoad = new Tree(null); // Tree for managing loaded trucks
-        Tree treeForReady = new Tree(null); // Tree for managing ready trucks
-        Tree treeForAddTruck = new Tree(null); // Tree for managing trucks that need to be added
-        Tree treeForCountTruck = new Tree(null); // Tree for counting trucks in parking lots
-
-        FileWriter fw = new FileWriter("output.txt"); // Writer to output results to a file
-        File file = new File("type1-large.txt"); // Input file containing commands
-        Scanner scanner = new Scanner(file); // Scanner to read the input file line-by-line
-
-        // Process each line in the input file
-        while (scanner.hasNextLine()) {
-            String[] array = scanner.nextLine().split(" "); // Split line into command and parameters
-
-            // Execute commands based on the first element in the array
-            if (array[0].equals("create_parking_lot")) {
-                // Create a new parking lot with specified capacity and truck limit
-                CreateParkingLot(treeForAddTruck, treeForCountTruck, Integer.parseInt(array[1]), Integer.parseInt(array[2]));
-            } else if (array[0].equals("delete_parking_lot")) {
-                // Delete a parking lot with the specified capacity constraint
-                DeleteParkingLot(treeForAddTruck, treeForReady, treeForLoad, treeForCountTruck, Integer.parseInt(array[1]));
-
-            } else if (array[0].equals("add_truck")) {
-                // Add a truck with specified ID and load capacity
-                int s = addTruck(treeForAddTruck, treeForReady, Integer.parseInt(array[1]), Integer.parseInt(array[2]));
-                fw.write(String.format(s + "\n")); // Write the result to the output file
-
-            } else if (array[0].equals("ready")) {
-                // Move the next truck from waiting to ready in the specified parking lot
-                String f = ready(treeForReady, treeForLoad, Integer.parseInt(array[1]));
-                fw.write(f + "\n"); // Write the result to the output file
-
-            } else if (array[0].equals("count")) {
-                // Count the number of trucks in parking lots with capacity greater than or equal to the specified limit
-                int k = count(treeForCountTruck, Integer.parseInt(array[1]));
-                fw.write(k + "\n"); // Write the result to the output file
-
-            } else if (array[0].equals("load")) {
-                // Distribute load among trucks in parking lots and move them if necessary
-                ArrayList<int[]> z = recieveLoad(treeForLoad, treeForAddTruck, treeForReady, Integer.parseInt(array[1]), Integer.parseInt(array[2]));
-
-                // Process the list of results and write them to the output file
-                for (int[] i : z) {
-                    if (i[0] == -1 && i[1] == -1) {
-                        fw.write("-1"); // Write -1 if no trucks were loaded
-                        break;
-                    } else {
-                        fw.write(i[0] + " " + i[1]); // Write truck ID and parking lot capacity constraint
-                    }
+        // Initialize the index of parking lots, which tracks their truck counts and states
+        ParkingLotIndex lots = new Tree(null);
+        String input = "type1-large.txt"; // Input file containing commands
+        String output = "output.txt"; // Output file for the results
+        long checkpointEvery = 0; // Commands between checkpoints, 0 for none
+        String restore = null; // Checkpoint to start from
+        boolean resume = false; // Whether to continue the input and output of the checkpoint
+        String statsPath = null; // Where stats dumps are written, null to collect no stats
+        long statsEvery = 1_000_000; // Commands between stats dumps
+        long slowNanos = 1_000_000; // Commands at least this slow are reported as JFR events
+        int paths = 0; // Number of paths given so far
+        for (String arg : args) {
+            if (arg.equals("bplus")) {
+                lots = new BPlusTree();
+            } else if (arg.startsWith("bitset=")) {
+                lots = new BitsetIndex(Integer.parseInt(arg.substring("bitset=".length())));
+            } else if (arg.startsWith("checkpoint=")) {
+                checkpointEvery = Long.parseLong(arg.substring("checkpoint=".length()));
+            } else if (arg.startsWith("resume=") || arg.startsWith("whatif=")) {
+                resume = arg.startsWith("resume=");
+                restore = arg.substring("resume=".length());
+            } else if (arg.startsWith("stats=")) {
+                statsPath = arg.substring("stats=".length());
+            } else if (arg.startsWith("stats-every=")) {
+                statsEvery = Long.parseLong(arg.substring("stats-every=".length()));
+            } else if (arg.startsWith("slow-ns=")) {
+                slowNanos = Long.parseLong(arg.substring("slow-ns=".length()));
+            } else if (paths == 0) {
+                input = arg;
+                paths++;
+            } else if (paths == 1) {
+                output = arg;
+                paths++;
+            } else {
+                System.err.println("Usage: java Main [bplus | bitset=MAX] [checkpoint=N] [resume=FILE | whatif=FILE] [stats=FILE [stats-every=N] [slow-ns=N]] [input [output]]");
+                System.exit(2);
+            }
+        }
 
-                    // Add a separator if there are multiple results
-                    if (z.size() > 1 && !i.equals(z.get(z.size() - 1))) {
-                        fw.write(" - ");
+        TruckStore trucks = new TruckStore(); // Parallel arrays holding every truck
+        LoadBatch batch = new LoadBatch(lots, trucks); // Reused by every load command
+        long commands = 0; // Commands executed, including those before the restored checkpoint
+        long inputOffset = 0; // Where reading the input starts
+        if (restore != null) {
+            Checkpoint checkpoint = Checkpoint.read(Path.of(restore), lots, trucks);
+            if (resume) {
+                commands = checkpoint.commands;
+                inputOffset = checkpoint.inputOffset;
+                // Drop any output written after the checkpoint, it is produced again below
+                try (FileChannel channel = FileChannel.open(Path.of(output), StandardOpenOption.WRITE)) {
+                    if (channel.size() < checkpoint.outputLength) {
+                        throw new IOException(output + " is shorter than the output recorded in " + restore);
                     }
+                    channel.truncate(checkpoint.outputLength);
                 }
-                fw.write("\n"); // New line after each command
             }
         }
-        fw.close(); // Close the output file writer after all commands are processed
+        try (CommandReader in = new CommandReader(Path.of(input), inputOffset); // Memory-mapped reader of the commands
+             OutputBuffer out = new OutputBuffer(new FileOutputStream(output, resume), 1 << 20); // Encodes results into the output file
+             FileWriter statsOut = (statsPath == null) ? null : new FileWriter(statsPath, true)) { // Receives the stats dumps
+            long outputStart = resume ? Files.size(Path.of(output)) : 0; // Output length before this run
+            SimulationStats stats = (statsOut == null) ? null : new SimulationStats(lots, statsOut, slowNanos);
+
+            // Process each command in the input file
+            for (int command = in.next(); command != CommandReader.END; command = in.next()) {
+                long started = (stats == null) ? 0 : System.nanoTime(); // Only read the clock when timing commands
+                int first = (CommandReader.ARGUMENTS[command] > 0) ? in.nextInt() : 0; // First argument, if any
+                int second = (CommandReader.ARGUMENTS[command] > 1) ? in.nextInt() : 0; // Second argument, if any
+                execute(command, first, second, lots, trucks, batch, out);
+                commands++;
+                if (stats != null) {
+                    stats.record(command, System.nanoTime() - started);
+                    if (commands % statsEvery == 0) {
+                        stats.dump();
+                    }
+                }
+                if (checkpointEvery > 0 && commands % checkpointEvery == 0) {
+                    out.flush(); // The output up to the checkpoint must be on disk to resume from it
+                    Checkpoint.write(Path.of(output + "." + commands + ".ckpt"), lots, trucks, commands, in.finishLine(),
+                            outputStart + out.length());
+                }
+            }
+            if (stats != null) {
+                stats.dump(); // Final dump with the totals of the run
+            }
+        } // Writes the rest of the buffer and closes both files after all commands are processed
     }
 }
@@ -0,0 +1,176 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+/**
+ * Simulates many independent yards in one process. Every input line starts with a yard id followed
+ * by an ordinary command, such as "17 add_truck 4 250", and each yard has its own parking lots and trucks.
+ * Blank lines and lines that do not start with a yard id, such as comments, are skipped.
+ * The input is read in chunks of commands. While the yards that received commands in one chunk run in
+ * parallel on a work-stealing pool, the next chunk is read, so parsing overlaps the simulation.
+ * Every result line is prefixed with its yard id. The results of one yard are written in the order of
+ * its commands, and those of a chunk are written before those of the next, but lines of different
+ * yards within a chunk are grouped by yard, in the order the yards first appear in the chunk.
+ * Usage: java MultiYardMain [bplus | bitset=MAX] [threads=N] [chunk=N] [input [output]]
+ */
+public class MultiYardMain {
+
+    /**
+     * Runs a range of yards, splitting it in halves so that idle workers can steal the other half.
+     */
+    private static class Round extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Yard[] yards; // Yards of the round
+        private final int from, to; // Range of yards run by this task, to is exclusive
+
+        /**
+         * Constructs the task for a range of yards.
+         *
+         * @param yards Yards of the round.
+         * @param from  First yard of the range.
+         * @param to    End of the range, exclusive.
+         */
+        Round(Yard[] yards, int from, int to) {
+            this.yards = yards;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Runs the yard of a single-yard range, or forks both halves of a larger one.
+         */
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                try {
+                    yards[from].run();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Round(yards, from, middle), new Round(yards, middle, to));
+        }
+    }
+
+    /**
+     * Waits for a round to finish and writes the results of its yards.
+     *
+     * @param round  The running round, or null if there is none.
+     * @param yards  Yards of the round.
+     * @param output Stream the results are written to.
+     * @throws IOException If writing the results fails.
+     */
+    private static void finish(ForkJoinTask<?> round, Yard[] yards, OutputStream output) throws IOException {
+        if (round == null) {
+            return;
+        }
+        try {
+            round.join();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        for (Yard yard : yards) {
+            yard.writeTo(output);
+        }
+    }
+
+    /**
+     * Reads the tagged commands of all yards and simulates the yards in parallel.
+     *
+     * @param args Command-line arguments: "bplus" or "bitset=MAX" to choose the index of every yard as in Main,
+     *             "threads=N" for the number of worker threads (the number of processors by default),
+     *             "chunk=N" for the number of commands read per round (1,000,000 by default),
+     *             followed by the input path (yards.txt by default) and the output path (output.txt by default).
+     * @throws IOException If there's an error with file reading or writing.
+     */
+    public static void main(String[] args) throws IOException {
+        Supplier<ParkingLotIndex> index = () -> new Tree(null); // Creates the index of each new yard
+        int threads = Runtime.getRuntime().availableProcessors(); // Worker threads of the pool
+        int chunk = 1_000_000; // Commands read per round
+        String input = "yards.txt"; // Input file containing tagged commands
+        String output = "output.txt"; // Output file for the tagged results
+        int paths = 0; // Number of paths given so far
+        for (String arg : args) {
+            if (arg.equals("bplus")) {
+                index = BPlusTree::new;
+            } else if (arg.startsWith("bitset=")) {
+                int maxCapacity = Integer.parseInt(arg.substring("bitset=".length()));
+                index = () -> new BitsetIndex(maxCapacity);
+            } else if (arg.startsWith("threads=")) {
+                threads = Integer.parseInt(arg.substring("threads=".length()));
+            } else if (arg.startsWith("chunk=")) {
+                chunk = Integer.parseInt(arg.substring("chunk=".length()));
+            } else if (paths == 0) {
+                input = arg;
+                paths++;
+            } else if (paths == 1) {
+                output = arg;
+                paths++;
+            } else {
+                System.err.println("Usage: java MultiYardMain [bplus | bitset=MAX] [threads=N] [chunk=N] [input [output]]");
+                System.exit(2);
+            }
+        }
+
+        HashMap<Integer, Yard> yards = new HashMap<>(); // Every yard by id
+        List<Yard> filling = new ArrayList<>(); // Yards that received commands in the chunk being read
+        Yard[] running = new Yard[0]; // Yards of the round in progress
+        ForkJoinTask<?> round = null; // The round in progress, or null
+        boolean more = true; // Whether the input has lines left
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try (CommandReader in = new CommandReader(Path.of(input));
+             OutputStream out = new FileOutputStream(output)) {
+            while (more || round != null) {
+                // Read the next chunk while the previous one runs
+                for (int read = 0; read < chunk && (more = in.nextLine()); read++) {
+                    if (!in.hasNextInt()) {
+                        continue; // Blank lines and comments have no yard id
+                    }
+                    int yardId = in.nextInt();
+                    int command = in.nextCommand();
+                    if (command == CommandReader.UNKNOWN) {
+                        continue; // Lines that are not commands are ignored
+                    }
+                    int first = (CommandReader.ARGUMENTS[command] > 0) ? in.nextInt() : 0;
+                    int second = (CommandReader.ARGUMENTS[command] > 1) ? in.nextInt() : 0;
+                    Yard yard = yards.get(yardId);
+                    if (yard == null) {
+                        yard = new Yard(yardId, index);
+                        yards.put(yardId, yard);
+                    }
+                    if (!yard.hasQueued()) {
+                        filling.add(yard);
+                    }
+                    yard.add(command, first, second);
+                }
+
+                finish(round, running, out);
+                round = null;
+                if (filling.isEmpty()) {
+                    continue; // Nothing to run in this chunk
+                }
+                running = filling.toArray(new Yard[0]);
+                filling.clear();
+                for (Yard yard : running) {
+                    yard.swap();
+                }
+                round = pool.submit(new Round(running, 0, running.length));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encodes the simulation output as ASCII bytes into a fixed buffer that is written to a stream when full.
+ * Numbers are written digit by digit, so producing output allocates no strings.
+ */
+public class OutputBuffer implements AutoCloseable {
+
+    private final OutputStream out; // Stream the buffer is written to
+    private final byte[] buffer; // Bytes not yet written to the stream
+    private final byte[] digits = new byte[20]; // Scratch space for the digits and sign of one number
+    private int position; // Number of bytes in the buffer
+    private long flushed; // Number of bytes already written to the stream
+
+    /**
+     * Constructs a buffer writing to a stream.
+     *
+     * @param out  Stream the output is written to.
+     * @param size Buffer size in bytes, at least 20.
+     */
+    public OutputBuffer(OutputStream out, int size) {
+        this.out = out;
+        this.buffer = new byte[size];
+    }
+
+    /**
+     * Writes one ASCII character.
+     *
+     * @param c The character.
+     * @throws IOException If writing the full buffer to the stream fails.
+     */
+    public void write(char c) throws IOException {
+        if (position == buffer.length) {
+            flush();
+        }
+        buffer[position++] = (byte) c;
+    }
+
+    /**
+     * Writes an ASCII string.
+     *
+     * @param s The string.
+     * @throws IOException If writing the full buffer to the stream fails.
+     */
+    public void write(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            write(s.charAt(i));
+        }
+    }
+
+    /**
+     * Writes an integer in decimal.
+     *
+     * @param value The integer.
+     * @throws IOException If writing the full buffer to the stream fails.
+     */
+    public void writeInt(int value) throws IOException {
+        writeLong(value);
+    }
+
+    /**
+     * Writes a long integer in decimal.
+     *
+     * @param value The integer.
+     * @throws IOException If writing the full buffer to the stream fails.
+     */
+    public void writeLong(long value) throws IOException {
+        if (position + digits.length > buffer.length) {
+            flush();
+        }
+        if (value < 0) {
+            buffer[position++] = '-';
+        } else {
+            value = -value; // Negative values reach Long.MIN_VALUE, so the digits are taken from the negative side
+        }
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' - value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (count > 0) {
+            buffer[position++] = digits[--count];
+        }
+    }
+
+    /**
+     * Writes the buffered bytes to the stream.
+     *
+     * @throws IOException If writing to the stream fails.
+     */
+    public void flush() throws IOException {
+        out.write(buffer, 0, position);
+        flushed += position;
+        position = 0;
+    }
+
+    /**
+     * Returns the number of bytes written so far, including those still in the buffer.
+     *
+     * @return Total output length.
+     */
+    public long length() {
+        return flushed + position;
+    }
+
+    /**
+     * Writes the buffered bytes and closes the stream.
+     *
+     * @throws IOException If writing to or closing the stream fails.
+     */
+    public void close() throws IOException {
+        flush();
+        out.close();
+    }
+}
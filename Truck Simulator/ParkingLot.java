@@ -5,6 +5,10 @@
  */
 public class ParkingLot {
 
+    static final int HAS_FREE_SLOT = 1; // State bit: the lot can accept another truck
+    static final int HAS_WAITING = 2; // State bit: the lot has a truck in the waiting queue
+    static final int HAS_READY = 4; // State bit: the lot has a truck in the ready queue
+
     int capacityConstraint; // Maximum load capacity the parking lot can handle
     int truckLimit; // Maximum number of trucks allowed in the parking lot
     Queue ready; // Queue to store trucks that are ready to be loaded
@@ -12,10 +16,14 @@ public class ParkingLot {
     int totalTruckCount; // Counter for the total number of trucks in the lot
     int waitingTruckCount; // Counter for the number of waiting trucks
     int readyTruckCount; // Counter for the number of ready trucks
+    boolean pendingUpdate; // Whether a LoadBatch changed the lot without reporting it to the index yet
+    int publishedState; // State bits last reported to the index that holds the lot, for its operation counters
+    int yardState; // State bits last published to the state sets of the ConcurrentYard that holds the lot, guarded by the lot
+    boolean deleted; // Whether a ConcurrentYard deleted the lot, guarded by the lot
 
     /**
      * Constructor to initialize a ParkingLot with a given capacity constraint and truck limit.
-     * Initializes the ready and waiting queues based on the truck limit, and sets counters to zero.
+     * Initializes the ready and waiting queues, which grow up to the truck limit as trucks arrive, and sets counters to zero.
      *
      * @param capacityConstraint Maximum load capacity the parking lot can handle.
      * @param truckLimit Maximum number of trucks allowed in the parking lot.
@@ -34,11 +42,30 @@ public class ParkingLot {
      * Adds a truck to the parking lot's waiting queue.
      * Updates the total truck count and the waiting truck count.
      *
-     * @param truck The truck to be added to the parking lot.
+     * @param truck Handle of the truck to be added to the parking lot.
      */
-    public void addTruckPL(Truck truck) {
+    public void addTruckPL(int truck) {
         waiting.enqueue(truck); // Add the truck to the waiting queue
         totalTruckCount += 1; // Increment the total truck count
         waitingTruckCount += 1; // Increment the waiting truck count
     }
+
+    /**
+     * Summarizes which commands can currently use this parking lot.
+     *
+     * @return A combination of HAS_FREE_SLOT, HAS_WAITING and HAS_READY.
+     */
+    public int state() {
+        int state = 0;
+        if (totalTruckCount < truckLimit) {
+            state |= HAS_FREE_SLOT;
+        }
+        if (waitingTruckCount > 0) {
+            state |= HAS_WAITING;
+        }
+        if (readyTruckCount > 0) {
+            state |= HAS_READY;
+        }
+        return state;
+    }
 }
@@ -0,0 +1,96 @@
+import java.util.function.Predicate;
+
+/**
+ * Ordered index of parking lots by capacity constraint, as used by the commands in Main.
+ * Implementations keep the truck count and the ParkingLot.state() bits of their lots summarized,
+ * so lots in a given state can be searched and trucks counted without visiting every lot.
+ */
+public interface ParkingLotIndex {
+
+    /**
+     * Inserts a parking lot. Lots whose capacity constraint is already present are ignored.
+     * @param parkingLot The parking lot to be inserted.
+     */
+    void insertParkingLot(ParkingLot parkingLot);
+
+    /**
+     * Deletes the parking lot with a given capacity constraint, if there is one.
+     * @param capacityConstraint Capacity of the parking lot to delete.
+     * @return The deleted parking lot, or null if there was none.
+     */
+    ParkingLot delete(int capacityConstraint);
+
+    /**
+     * Finds the parking lot with the largest capacity less than or equal to the specified value
+     * among the lots in the given state.
+     * @param capacityConstraint Capacity constraint to search for.
+     * @param state State bit the parking lot must have.
+     * @return The closest matching parking lot, or null if none found.
+     */
+    ParkingLot findSuccesorr(int capacityConstraint, int state);
+
+    /**
+     * Finds the parking lot with the smallest capacity greater than or equal to the specified value
+     * among the lots in the given state.
+     * @param capacityConstraint The minimum capacity constraint for the parking lot.
+     * @param state State bit the parking lot must have.
+     * @return The closest matching parking lot, or null if none found.
+     */
+    ParkingLot findAncestor(int capacityConstraint, int state);
+
+    /**
+     * Visits the parking lots in the given state with a capacity greater than or equal to the specified
+     * value in ascending order of capacity, until the visitor returns false. The visitor may change the
+     * trucks of any lot and call lotChanged, but must not insert or delete lots.
+     * @param capacityConstraint The minimum capacity constraint of the visited lots.
+     * @param state State bit the visited lots must have when they are reached, or 0 to visit every lot.
+     * @param visitor Called for each lot, returns false to stop the walk.
+     */
+    void forEachFrom(int capacityConstraint, int state, Predicate<ParkingLot> visitor);
+
+    /**
+     * Refreshes the summaries of the index after the trucks of a parking lot changed.
+     * Lots that are not in the index are ignored.
+     * @param parkingLot The parking lot whose trucks changed.
+     */
+    void lotChanged(ParkingLot parkingLot);
+
+    /**
+     * Counts the trucks in parking lots with a capacity constraint strictly greater than the given one.
+     * @param capacityConstraint Capacity constraint to count above.
+     * @return Total truck count of the matching parking lots.
+     */
+    int countGreaterThan(int capacityConstraint);
+
+    /**
+     * Returns the operation counters of the index, brought up to date.
+     * @return The counters, or null if the index keeps none.
+     */
+    default IndexStats stats() {
+        return null;
+    }
+
+    /**
+     * Counts the trucks in parking lots whose capacity constraint lies in the given inclusive range.
+     * @param low Smallest capacity constraint to include.
+     * @param high Largest capacity constraint to include.
+     * @return Total truck count of the matching parking lots, or 0 if the range is empty.
+     */
+    default int countBetween(int low, int high) {
+        if (low > high) {
+            return 0;
+        }
+        if (low == Integer.MIN_VALUE) {
+            // low - 1 would wrap around, so count everything up to high, adding a lot at the smallest capacity by hand
+            int[] smallest = new int[1];
+            forEachFrom(low, 0, lot -> {
+                if (lot.capacityConstraint == low) {
+                    smallest[0] = lot.totalTruckCount;
+                }
+                return false;
+            });
+            return smallest[0] + countGreaterThan(low) - countGreaterThan(high);
+        }
+        return countGreaterThan(low - 1) - countGreaterThan(high);
+    }
+}
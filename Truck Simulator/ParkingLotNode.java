@@ -2,12 +2,20 @@
  * Node class for representing a parking lot in the AVL Tree.
  * Each node contains references to its left and right children, its height in the tree,
  * and a ParkingLot object that holds information about the parking lot itself.
+ * It also keeps the total truck count and the combined state bits of its subtree, so that
+ * trucks above a capacity can be counted, and lots in a given state found, in a single descent.
+ * The nodes are also threaded into a list in capacity order, which rotations leave unchanged, so
+ * the neighbours of a node are one step away (see TreeCursor).
  */
 public class ParkingLotNode {
     ParkingLotNode leftChild; // Reference to the left child node
     ParkingLotNode rightChild; // Reference to the right child node
     int height; // Height of the node in the AVL tree
     ParkingLot parkingOfNode; // Parking lot data stored in this node
+    int subtreeTruckCount; // Total truck count of all parking lots in this node's subtree
+    int subtreeState; // Union of the ParkingLot.state() bits of all parking lots in this node's subtree
+    ParkingLotNode next; // Node with the next greater capacity, or null
+    ParkingLotNode previous; // Node with the next smaller capacity, or null
 
     /**
      * Constructor that initializes a ParkingLotNode with a given ParkingLot object.
@@ -19,5 +27,7 @@ public class ParkingLotNode {
         this.rightChild = null; // Initialize right child as null
         this.leftChild = null; // Initialize left child as null
         this.height = 0; // Start height at 0 since it's a leaf node initially
+        this.subtreeTruckCount = pl.totalTruckCount; // A leaf only holds its own trucks
+        this.subtreeState = pl.state(); // A leaf only summarizes its own lot
     }
 }
@@ -1,14 +1,21 @@
 /**
  * Queue class for managing trucks in a circular queue.
+ * The queue holds truck handles of a TruckStore rather than truck objects.
  * Implements basic queue operations like enqueue, dequeue, and access to the front truck.
+ * The array starts empty and doubles when it is full, up to the truck limit, and halves again
+ * when the queue drains, so a lot with a large truck limit only pays for the trucks it holds.
  */
 public class Queue {
+    private static final int[] EMPTY = new int[0]; // Shared array of queues that never held a truck
+    static final int MIN_CAPACITY = 4; // Smallest array allocated, and the size kept when the queue drains
+
     int front, rear, truckLimit; // Indices for front and rear, and the truck limit (capacity) of the queue
-    Truck[] queue; // Array to store trucks in the queue
+    int size; // Number of trucks currently in the queue
+    int[] queue; // Array to store truck handles in the queue, grown and shrunk as needed
 
     /**
      * Constructor to initialize a Queue with a given capacity.
-     * Initializes the queue array and sets front and rear indices.
+     * No array is allocated until the first truck arrives.
      *
      * @param c Maximum number of trucks the queue can hold.
      */
@@ -16,36 +23,86 @@ public class Queue {
         front = 0; // Start front index at 0
         rear = -1; // Start rear index at -1, indicating the queue is initially empty
         truckLimit = c; // Set the queue capacity based on the parameter
-        queue = new Truck[truckLimit]; // Initialize the truck array with the specified limit
+        queue = EMPTY; // Allocate lazily
     }
 
     /**
      * Adds a truck to the queue (enqueue operation).
-     * Uses circular indexing to wrap around if the end of the array is reached.
+     * Uses circular indexing to wrap around if the end of the array is reached, and doubles the array
+     * first if it is full.
      *
-     * @param TData The truck to be added to the queue.
+     * @param TData Handle of the truck to be added to the queue.
      */
-    void enqueue(Truck TData) {
-        rear = (rear + 1) % truckLimit; // Move rear index forward in a circular manner
+    void enqueue(int TData) {
+        if (size == queue.length) {
+            resize(Math.min(Math.max(queue.length * 2, MIN_CAPACITY), truckLimit));
+        }
+        rear = (rear + 1) % queue.length; // Move rear index forward in a circular manner
         queue[rear] = TData; // Place the new truck at the rear of the queue
+        size++;
     }
 
     /**
      * Removes a truck from the front of the queue (dequeue operation).
-     * Sets the front element to null and advances the front index in a circular way.
+     * Advances the front index in a circular way, then halves the array once it is at most a quarter full.
      */
     void dequeue() {
-        queue[front] = null; // Remove the truck from the front of the queue
-        front = (front + 1) % truckLimit; // Move front index forward in a circular manner
-        return;
+        front = (front + 1) % queue.length; // Move front index forward in a circular manner
+        size--;
+        if (queue.length > MIN_CAPACITY && size <= queue.length / 4) {
+            resize(Math.max(queue.length / 2, MIN_CAPACITY)); // Halving at a quarter avoids resizing back and forth
+        }
     }
 
     /**
      * Retrieves the truck at the front of the queue without removing it.
      *
-     * @return The truck at the front of the queue.
+     * @return Handle of the truck at the front of the queue.
      */
-    public Truck front() {
+    public int front() {
         return queue[front]; // Return the truck at the front of the queue
     }
+
+    /**
+     * Retrieves the truck at the rear of the queue without removing it.
+     *
+     * @return Handle of the truck that was enqueued last.
+     */
+    int back() {
+        return queue[rear];
+    }
+
+    /**
+     * Retrieves a truck by its position in the queue without removing it.
+     *
+     * @param position Position counted from the front, 0 for the front truck.
+     * @return Handle of the truck at that position.
+     */
+    int at(int position) {
+        return queue[(front + position) % queue.length];
+    }
+
+    /**
+     * Copies the trucks in queue order into a new array of the given length.
+     *
+     * @param length New array length, at least the number of trucks in the queue.
+     */
+    private void resize(int length) {
+        int[] resized = new int[length];
+        for (int i = 0; i < size; i++) {
+            resized[i] = queue[(front + i) % queue.length];
+        }
+        queue = resized;
+        front = 0;
+        rear = size - 1;
+    }
+
+    /**
+     * Returns the length of the array currently backing the queue.
+     *
+     * @return Number of truck handles allocated for this queue.
+     */
+    int allocatedSlots() {
+        return queue.length;
+    }
 }
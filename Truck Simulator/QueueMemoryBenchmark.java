@@ -0,0 +1,83 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+/**
+ * Measures the memory of the truck queues on a generated workload.
+ * Lots with random truck limits are created, some of them are filled through add_truck, ready and
+ * load, and the queue slots that are allocated are compared with the two full arrays of
+ * truckLimit references that every lot allocated before the queues could grow.
+ * Run with: java QueueMemoryBenchmark [lots] [maxTruckLimit]
+ */
+public class QueueMemoryBenchmark {
+
+    /**
+     * Returns the heap currently in use after asking the JVM to collect garbage.
+     *
+     * @return Used heap in bytes.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Prints the allocated queue slots and retained heap per lot after each phase of the workload.
+     *
+     * @param args Optional number of lots and largest truck limit.
+     * @throws IOException Never, the command output is discarded.
+     */
+    public static void main(String[] args) throws IOException {
+        int lotCount = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int maxTruckLimit = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        Random random = new Random(42);
+
+        long before = usedHeap();
+        ParkingLotIndex lots = new Tree(null);
+        TruckStore trucks = new TruckStore();
+        LoadBatch batch = new LoadBatch(lots, trucks);
+        OutputBuffer out = new OutputBuffer(OutputStream.nullOutputStream(), 1 << 16);
+        ParkingLot[] created = new ParkingLot[lotCount];
+        long eagerSlots = 0;
+        for (int i = 0; i < lotCount; i++) {
+            created[i] = new ParkingLot(i + 1, 1 + random.nextInt(maxTruckLimit));
+            lots.insertParkingLot(created[i]);
+            eagerSlots += 2L * created[i].truckLimit;
+        }
+        report("Empty lots:", created, eagerSlots, usedHeap() - before);
+
+        int truckId = 0;
+        for (int i = 0; i < lotCount * 20; i++) {
+            Main.addTruck(lots, trucks, ++truckId, 1 + random.nextInt(lotCount));
+        }
+        for (int i = 0; i < lotCount * 10; i++) {
+            Main.ready(lots, trucks, 1 + random.nextInt(lotCount), out);
+        }
+        report("After arrivals:", created, eagerSlots, usedHeap() - before);
+
+        for (int i = 0; i < lotCount; i++) {
+            Main.recieveLoad(batch, 1 + random.nextInt(lotCount), 1 + random.nextInt(lotCount), out);
+        }
+        report("After loads:", created, eagerSlots, usedHeap() - before);
+    }
+
+    /**
+     * Prints the queue slots in use by the lots next to the eager allocation.
+     *
+     * @param phase      Name of the phase.
+     * @param created    All lots of the run.
+     * @param eagerSlots Slots the lots would allocate with full-size queues.
+     * @param heapBytes  Heap retained by the run so far.
+     */
+    private static void report(String phase, ParkingLot[] created, long eagerSlots, long heapBytes) {
+        long slots = 0;
+        for (ParkingLot parkingLot : created) {
+            slots += parkingLot.ready.allocatedSlots() + parkingLot.waiting.allocatedSlots();
+        }
+        System.out.printf("%-16s %,12d queue slots (eager %,d, %.1f%%), %d heap bytes/lot%n", phase, slots, eagerSlots,
+                100.0 * slots / eagerSlots, heapBytes / created.length);
+    }
+}
@@ -0,0 +1,182 @@
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Collects runtime metrics of a simulation and writes them as a periodic stats dump.
+ * Every command's latency goes into a histogram with one bucket per power of two nanoseconds,
+ * per command type. Each dump is one JSON object per line with the command counts and latency
+ * percentiles, the counters of the index (see IndexStats), and the distribution of lot occupancy
+ * in tenths of the truck limit. Each dump is also committed as a StatsDumpEvent, and commands slower
+ * than the slow-command limit as SlowCommandEvents, for when the run is recorded with JFR.
+ * Timing costs two System.nanoTime calls per command, so Main only collects stats when asked to.
+ */
+public class SimulationStats {
+
+    private static final String[] COMMAND_NAMES = { // Names by CommandReader command code
+            "unknown", "create_parking_lot", "delete_parking_lot", "add_truck", "ready", "load", "count"
+    };
+    private static final int BUCKETS = 64; // Latency buckets, bucket b holds latencies below 2^b ns
+
+    private final ParkingLotIndex lots; // Index of all parking lots
+    private final Writer out; // Where the dumps are written
+    private final long slowNanos; // Commands at least this slow are reported as JFR events
+    private final long[][] latency = new long[COMMAND_NAMES.length][BUCKETS]; // Latency histograms by command
+    private final long start = System.nanoTime(); // When the stats were created
+    private long commands; // Commands recorded so far
+
+    /**
+     * Constructs the stats of a simulation.
+     *
+     * @param lots      Index of all parking lots.
+     * @param out       Where the dumps are written.
+     * @param slowNanos Commands at least this slow are reported as JFR events.
+     */
+    public SimulationStats(ParkingLotIndex lots, Writer out, long slowNanos) {
+        this.lots = lots;
+        this.out = out;
+        this.slowNanos = slowNanos;
+    }
+
+    /**
+     * Records the latency of one command.
+     *
+     * @param command The CommandReader command code.
+     * @param nanos   Execution time of the command.
+     */
+    public void record(int command, long nanos) {
+        commands++;
+        latency[command][BUCKETS - Long.numberOfLeadingZeros(nanos)]++;
+        if (nanos >= slowNanos) {
+            SlowCommandEvent event = new SlowCommandEvent();
+            if (event.isEnabled()) {
+                event.command = COMMAND_NAMES[command];
+                event.commandNumber = commands;
+                event.latency = nanos;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Writes one dump line and commits it as a JFR event.
+     *
+     * @throws IOException If writing the dump fails.
+     */
+    public void dump() throws IOException {
+        // Occupancy in tenths of the truck limit, full lots and lots without room in the last bucket
+        long[] occupancy = new long[11];
+        long[] totals = new long[2]; // Lot count and truck count
+        lots.forEachFrom(Integer.MIN_VALUE, 0, parkingLot -> {
+            int tenth = (parkingLot.truckLimit <= 0) ? 10
+                    : (int) (10L * parkingLot.totalTruckCount / parkingLot.truckLimit);
+            occupancy[tenth]++;
+            totals[0]++;
+            totals[1] += parkingLot.totalTruckCount;
+            return true;
+        });
+
+        long[] all = new long[BUCKETS];
+        StringBuilder json = new StringBuilder(1024);
+        json.append("{\"commands\":").append(commands)
+                .append(",\"elapsedMs\":").append((System.nanoTime() - start) / 1_000_000)
+                .append(",\"lots\":").append(totals[0])
+                .append(",\"trucks\":").append(totals[1])
+                .append(",\"latencyNs\":{");
+        boolean first = true;
+        for (int command = 0; command < COMMAND_NAMES.length; command++) {
+            long count = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                count += latency[command][b];
+                all[b] += latency[command][b];
+            }
+            if (count == 0) {
+                continue;
+            }
+            json.append(first ? "" : ",").append('"').append(COMMAND_NAMES[command]).append("\":");
+            appendHistogram(json, latency[command], count);
+            first = false;
+        }
+        json.append("},\"occupancy\":[");
+        for (int i = 0; i < occupancy.length; i++) {
+            json.append(i == 0 ? "" : ",").append(occupancy[i]);
+        }
+        json.append(']');
+        IndexStats index = lots.stats();
+        if (index != null) {
+            json.append(",\"index\":");
+            index.appendJson(json);
+        }
+        json.append("}\n");
+        out.write(json.toString());
+        out.flush();
+
+        StatsDumpEvent event = new StatsDumpEvent();
+        if (event.isEnabled()) {
+            event.commands = commands;
+            event.lots = (int) totals[0];
+            event.trucks = totals[1];
+            if (index != null) {
+                event.height = index.height;
+                event.rotations = index.rotations;
+                event.visitsPerSearch = (index.searches == 0) ? 0 : (double) index.searchVisits / index.searches;
+                event.stateFlips = index.stateFlips;
+            }
+            event.p99 = percentile(all, commands, 0.99);
+            event.commit();
+        }
+    }
+
+    /**
+     * Appends a latency histogram as a JSON object with its count, percentiles and non-empty buckets.
+     *
+     * @param json    The dump being built.
+     * @param buckets The histogram.
+     * @param count   Number of latencies in the histogram.
+     */
+    private static void appendHistogram(StringBuilder json, long[] buckets, long count) {
+        json.append("{\"count\":").append(count)
+                .append(",\"p50\":").append(percentile(buckets, count, 0.5))
+                .append(",\"p99\":").append(percentile(buckets, count, 0.99))
+                .append(",\"p999\":").append(percentile(buckets, count, 0.999))
+                .append(",\"max\":").append(percentile(buckets, count, 1.0))
+                .append(",\"buckets\":{");
+        boolean first = true;
+        for (int b = 0; b < BUCKETS; b++) {
+            if (buckets[b] != 0) {
+                json.append(first ? "" : ",").append("\"<").append(bucketLimit(b)).append("\":").append(buckets[b]);
+                first = false;
+            }
+        }
+        json.append("}}");
+    }
+
+    /**
+     * Finds the bucket limit below which a given fraction of the latencies lie.
+     *
+     * @param buckets  The histogram.
+     * @param count    Number of latencies in the histogram.
+     * @param fraction The fraction, between 0 and 1.
+     * @return The exclusive upper limit of the bucket in nanoseconds, 0 for an empty histogram.
+     */
+    private static long percentile(long[] buckets, long count, double fraction) {
+        long wanted = (long) Math.ceil(count * fraction);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += buckets[b];
+            if (seen >= wanted && seen > 0) {
+                return bucketLimit(b);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the exclusive upper limit of a latency bucket.
+     *
+     * @param bucket The bucket.
+     * @return 2^bucket nanoseconds, capped at Long.MAX_VALUE.
+     */
+    private static long bucketLimit(int bucket) {
+        return (bucket >= 63) ? Long.MAX_VALUE : 1L << bucket;
+    }
+}
@@ -0,0 +1,25 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for a simulator command that took longer than the slow-command limit of SimulationStats.
+ */
+@Name("truck.SlowCommand")
+@Label("Slow Command")
+@Category("Truck Simulator")
+@Description("A command whose execution exceeded the slow-command limit")
+public class SlowCommandEvent extends jdk.jfr.Event {
+
+    @Label("Command")
+    String command; // Name of the command
+
+    @Label("Command Number")
+    long commandNumber; // Position of the command in the run, starting at 1
+
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency; // Execution time of the command, kept apart from the duration JFR gives every event
+}
@@ -0,0 +1,40 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event carrying the main figures of each stats dump written by SimulationStats.
+ */
+@Name("truck.StatsDump")
+@Label("Stats Dump")
+@Category("Truck Simulator")
+@Description("Periodic summary of the simulation and its parking lot index")
+public class StatsDumpEvent extends jdk.jfr.Event {
+
+    @Label("Commands")
+    long commands; // Commands executed so far
+
+    @Label("Parking Lots")
+    int lots; // Parking lots in the index
+
+    @Label("Trucks")
+    long trucks; // Trucks parked in all lots
+
+    @Label("Tree Height")
+    int height; // Current height of the index, 0 if it is not a tree
+
+    @Label("Rotations")
+    long rotations; // AVL rotations so far
+
+    @Label("Nodes Visited Per Search")
+    double visitsPerSearch; // Average nodes visited by the state-filtered searches
+
+    @Label("State Flips")
+    long stateFlips; // State bits gained or lost by lots so far
+
+    @Label("99th Percentile Command Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    long p99; // Upper bound of the latency of 99% of all commands
+}
@@ -0,0 +1,200 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Runs the simulation against a clock. Every input line starts with the tick at which it happens,
+ * such as "120 add_truck 7 250", and the ticks must not decrease. Trucks do not wait for ready
+ * commands: a truck that is parked, on arrival or after a load moved it, becomes ready a dwell
+ * time later through an event in a TimingWheel, and trucks that fit no lot after loading depart.
+ * Ready lines in the input are skipped. Deleting a lot cancels the ready events of its waiting trucks.
+ * Commands and events are carried out by the handlers of Main, and every result line is prefixed
+ * with the tick it happened at. Events due at the tick of an input line run before that line.
+ * Usage: java TimedMain [bplus | bitset=MAX] [dwell=TICKS] [input [output]]
+ */
+public class TimedMain {
+
+    private final ParkingLotIndex lots; // Index of all parking lots
+    private final TruckStore trucks = new TruckStore(); // Parallel arrays holding every truck
+    private final LoadBatch batch; // Reused by every load command
+    private final TimingWheel wheel = new TimingWheel(); // Pending ready events
+    private final OutputBuffer out; // Encodes results into the output file
+    private final int dwell; // Ticks between parking and becoming ready
+    private final TimingWheel.Action readyAction = this::truckReady; // Action of the ready events, created once
+    private int[] readyEvent = new int[1024]; // Pending ready event of each truck handle, or -1
+
+    /**
+     * Constructs a timed simulation.
+     *
+     * @param lots  The empty index of the parking lots.
+     * @param dwell Ticks between parking and becoming ready.
+     * @param out   Where the results are written.
+     */
+    public TimedMain(ParkingLotIndex lots, int dwell, OutputBuffer out) {
+        this.lots = lots;
+        this.batch = new LoadBatch(lots, trucks);
+        this.dwell = dwell;
+        this.out = out;
+        Arrays.fill(readyEvent, -1);
+    }
+
+    /**
+     * Runs the events due up to a tick, then carries out a command at that tick.
+     *
+     * @param tick    Tick of the command, not before the tick of the previous one.
+     * @param command The CommandReader command code.
+     * @param first   First argument of the command, 0 if it has none.
+     * @param second  Second argument of the command, 0 if it has none.
+     * @throws IOException If writing the output fails.
+     */
+    public void command(long tick, int command, int first, int second) throws IOException {
+        if (tick < wheel.now()) {
+            throw new IllegalArgumentException("Tick " + tick + " is before the current tick " + wheel.now());
+        }
+        wheel.advance(tick, readyAction);
+        switch (command) {
+            case CommandReader.ADD_TRUCK:
+                out.writeLong(tick);
+                out.write(' ');
+                ParkingLot parked = Main.parkTruck(lots, trucks, first, second);
+                out.writeInt((parked == null) ? -1 : parked.capacityConstraint);
+                out.write('\n');
+                if (parked != null) {
+                    // The new truck is the last one waiting in the lot it was added to
+                    scheduleReady(tick, parked.capacityConstraint, parked.waiting.back());
+                }
+                break;
+            case CommandReader.LOAD:
+                out.writeLong(tick);
+                out.write(' ');
+                Main.recieveLoad(batch, first, second, out);
+                out.write('\n');
+                for (int move = 0; move < batch.moveCount(); move++) {
+                    if (batch.movedTruck(move) >= 0) {
+                        scheduleReady(tick, batch.movedTo(move), batch.movedTruck(move));
+                    }
+                }
+                break;
+            case CommandReader.DELETE_PARKING_LOT:
+                ParkingLot deleted = Main.DeleteParkingLot(lots, trucks, first);
+                if (deleted != null) {
+                    for (int i = 0; i < deleted.waitingTruckCount; i++) {
+                        int truck = deleted.waiting.at(i);
+                        wheel.cancel(readyEvent[truck]);
+                        readyEvent[truck] = -1;
+                    }
+                }
+                break;
+            case CommandReader.READY:
+                break; // Trucks become ready by their dwell time
+            case CommandReader.COUNT:
+                out.writeLong(tick);
+                out.write(' ');
+                Main.execute(command, first, second, lots, trucks, batch, out);
+                break;
+            default:
+                Main.execute(command, first, second, lots, trucks, batch, out);
+                break;
+        }
+    }
+
+    /**
+     * Runs every remaining event.
+     *
+     * @throws IOException If writing the output fails.
+     */
+    public void finish() throws IOException {
+        wheel.advance(Long.MAX_VALUE, readyAction);
+    }
+
+    /**
+     * Schedules the ready event of a truck that was just parked.
+     *
+     * @param tick  Tick at which the truck was parked.
+     * @param lot   Capacity of the lot it was parked in.
+     * @param truck Handle of the truck.
+     */
+    private void scheduleReady(long tick, int lot, int truck) {
+        if (truck >= readyEvent.length) {
+            int length = readyEvent.length;
+            readyEvent = Arrays.copyOf(readyEvent, Math.max(length * 2, truck + 1));
+            Arrays.fill(readyEvent, length, readyEvent.length, -1);
+        }
+        readyEvent[truck] = wheel.schedule(tick + dwell, CommandReader.READY, lot, truck);
+    }
+
+    /**
+     * Action of a ready event: the next waiting truck of the lot becomes ready.
+     * The dwell time is the same for every truck and events of one tick run in the order they were
+     * scheduled, so the trucks of a lot become ready in the order they were parked, and the front
+     * truck of the waiting queue is always the one the event was scheduled for.
+     *
+     * @param tick    Tick of the event.
+     * @param command CommandReader.READY.
+     * @param lot     Capacity of the lot the truck was parked in.
+     * @param truck   Handle of the truck.
+     * @param event   Handle of the event.
+     * @throws IOException If writing the output fails.
+     */
+    private void truckReady(long tick, int command, int lot, int truck, int event) throws IOException {
+        readyEvent[truck] = -1;
+        out.writeLong(tick);
+        out.write(' ');
+        Main.ready(lots, trucks, lot, out);
+        out.write('\n');
+    }
+
+    /**
+     * Reads timed commands from a file and writes the results of the commands and events.
+     *
+     * @param args Command-line arguments: "bplus" or "bitset=MAX" to choose the index as in Main,
+     *             "dwell=TICKS" for the ticks between parking and becoming ready (10 by default),
+     *             followed by the input path (timed.txt by default) and the output path (output.txt by default).
+     * @throws IOException If there's an error with file reading or writing.
+     */
+    public static void main(String[] args) throws IOException {
+        ParkingLotIndex lots = new Tree(null); // Index of all parking lots
+        int dwell = 10; // Ticks between parking and becoming ready
+        String input = "timed.txt"; // Input file containing timed commands
+        String output = "output.txt"; // Output file for the results
+        int paths = 0; // Number of paths given so far
+        for (String arg : args) {
+            if (arg.equals("bplus")) {
+                lots = new BPlusTree();
+            } else if (arg.startsWith("bitset=")) {
+                lots = new BitsetIndex(Integer.parseInt(arg.substring("bitset=".length())));
+            } else if (arg.startsWith("dwell=")) {
+                dwell = Integer.parseInt(arg.substring("dwell=".length()));
+            } else if (paths == 0) {
+                input = arg;
+                paths++;
+            } else if (paths == 1) {
+                output = arg;
+                paths++;
+            } else {
+                System.err.println("Usage: java TimedMain [bplus | bitset=MAX] [dwell=TICKS] [input [output]]");
+                System.exit(2);
+            }
+        }
+
+        try (CommandReader in = new CommandReader(Path.of(input));
+             OutputBuffer out = new OutputBuffer(new FileOutputStream(output), 1 << 20)) {
+            TimedMain simulation = new TimedMain(lots, dwell, out);
+            while (in.nextLine()) {
+                if (!in.hasNextInt()) {
+                    continue; // Blank lines and comments have no tick
+                }
+                long tick = in.nextLong();
+                int command = in.nextCommand();
+                if (command == CommandReader.UNKNOWN) {
+                    continue; // Lines that are not commands are ignored
+                }
+                int first = (CommandReader.ARGUMENTS[command] > 0) ? in.nextInt() : 0;
+                int second = (CommandReader.ARGUMENTS[command] > 1) ? in.nextInt() : 0;
+                simulation.command(tick, command, first, second);
+            }
+            simulation.finish();
+        }
+    }
+}
@@ -0,0 +1,308 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Hierarchical timing wheel that schedules simulator events at future ticks.
+ * There are eight levels of 256 slots, one level per byte of the 64-bit tick. An event goes to the
+ * highest byte in which its tick differs from the current tick, into the slot given by that byte of
+ * its tick, so scheduling and cancelling are constant time. When the current tick reaches the start
+ * of a slot's range, the slot is cascaded: its events move down to the level matching the new tick.
+ * Occupied slots are marked in bitmaps, so advancing over empty stretches of time jumps straight to
+ * the next tick at which something happens instead of stepping through every tick.
+ * Events are int handles into parallel arrays, like the trucks of TruckStore, and carry a command
+ * code and two integer arguments. Events of one tick run in the order they were scheduled, and
+ * handlers may schedule further events, also for the current tick.
+ */
+public class TimingWheel {
+
+    /**
+     * Action run for each event that becomes due.
+     */
+    public interface Action {
+
+        /**
+         * Runs one event.
+         *
+         * @param tick    Tick of the event, the current tick of the wheel.
+         * @param command Command code of the event.
+         * @param first   First argument of the event.
+         * @param second  Second argument of the event.
+         * @param event   Handle of the event, already free for reuse.
+         * @throws IOException If the action fails to write its output.
+         */
+        void run(long tick, int command, int first, int second, int event) throws IOException;
+    }
+
+    private static final int LEVELS = 8; // One level per byte of the tick
+    private static final int SLOTS = 256; // Slots per level
+    private static final int BITS = 8; // Tick bits covered by one level
+
+    private final int[] head = new int[LEVELS * SLOTS]; // First event of each slot, or -1
+    private final int[] tail = new int[LEVELS * SLOTS]; // Last event of each slot, or -1
+    private final long[] occupied = new long[LEVELS * SLOTS / 64]; // Bitmap of the slots that hold events
+    private long now; // Current tick
+
+    private long[] tick = new long[1024]; // Tick of each event
+    private int[] command = new int[1024]; // Command code of each event
+    private int[] first = new int[1024]; // First argument of each event
+    private int[] second = new int[1024]; // Second argument of each event
+    private int[] next = new int[1024]; // Next event in the same slot or in the free list, or -1
+    private int[] prev = new int[1024]; // Previous event in the same slot, or -1
+    private int[] slotOf = new int[1024]; // Slot holding each event, or -1 if the handle is free
+    private int freeList = -1; // First free handle, or -1
+    private int used; // Number of handles ever handed out
+    private int size; // Number of scheduled events
+
+    /**
+     * Constructs an empty wheel at tick 0.
+     */
+    public TimingWheel() {
+        Arrays.fill(head, -1);
+        Arrays.fill(tail, -1);
+    }
+
+    /**
+     * Returns the current tick.
+     *
+     * @return The tick up to which events have run.
+     */
+    public long now() {
+        return now;
+    }
+
+    /**
+     * Returns the number of scheduled events.
+     *
+     * @return Events that have neither run nor been cancelled.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Schedules an event. Ticks before the current one are moved to the current tick.
+     *
+     * @param at   Tick at which the event runs.
+     * @param cmd  Command code of the event.
+     * @param arg1 First argument of the event.
+     * @param arg2 Second argument of the event.
+     * @return Handle of the event, valid until it runs or is cancelled.
+     */
+    public int schedule(long at, int cmd, int arg1, int arg2) {
+        int event;
+        if (freeList >= 0) {
+            event = freeList;
+            freeList = next[event];
+        } else {
+            if (used == tick.length) {
+                grow();
+            }
+            event = used++;
+        }
+        tick[event] = Math.max(at, now);
+        command[event] = cmd;
+        first[event] = arg1;
+        second[event] = arg2;
+        link(event);
+        size++;
+        return event;
+    }
+
+    /**
+     * Cancels a scheduled event.
+     *
+     * @param event Handle returned by schedule.
+     * @return true if the event was cancelled, false if it had already run or been cancelled.
+     */
+    public boolean cancel(int event) {
+        if (event < 0 || event >= used || slotOf[event] < 0) {
+            return false;
+        }
+        unlink(event);
+        release(event);
+        size--;
+        return true;
+    }
+
+    /**
+     * Runs every event due at or before a tick, in tick order, and makes that tick the current one.
+     * Ticks before the current one leave the wheel unchanged.
+     *
+     * @param until  Last tick to run, Long.MAX_VALUE to run until no events are left.
+     * @param action Action run for each event.
+     * @throws IOException If an action fails.
+     */
+    public void advance(long until, Action action) throws IOException {
+        if (until < now) {
+            return;
+        }
+        while (true) {
+            runDue(action);
+            long due = nextDue();
+            if (due > until || due == Long.MAX_VALUE) {
+                if (until > now && until != Long.MAX_VALUE) {
+                    now = until; // No slot starts in between, so no events have to move
+                }
+                return;
+            }
+            now = due;
+            // Cascade the slots that start at the new tick, from the top so events can fall several levels
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((now & ((1L << (level * BITS)) - 1)) == 0) {
+                    int slot = level * SLOTS + ((int) (now >>> (level * BITS)) & (SLOTS - 1));
+                    int event = head[slot];
+                    clearSlot(slot);
+                    while (event >= 0) {
+                        int following = next[event];
+                        link(event);
+                        event = following;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the events of the current tick, including any that their actions schedule for it.
+     *
+     * @param action Action run for each event.
+     * @throws IOException If an action fails.
+     */
+    private void runDue(Action action) throws IOException {
+        int slot = (int) (now & (SLOTS - 1));
+        while (head[slot] >= 0) {
+            int event = head[slot];
+            unlink(event);
+            release(event);
+            size--;
+            action.run(now, command[event], first[event], second[event], event);
+        }
+    }
+
+    /**
+     * Finds the next tick after the current one at which events are due or a slot has to be cascaded.
+     *
+     * @return The tick, or Long.MAX_VALUE if no events are scheduled.
+     */
+    private long nextDue() {
+        if (size == 0) {
+            return Long.MAX_VALUE;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = level * BITS;
+            int current = (int) (now >>> shift) & (SLOTS - 1);
+            int slot = nextOccupied(level * SLOTS + current + 1, level * SLOTS + SLOTS);
+            if (slot >= 0) {
+                // Lower levels would have been found first, so this slot's start is the next event
+                long window = (shift + BITS == 64) ? 0 : (now >>> (shift + BITS)) << (shift + BITS);
+                return window | ((long) (slot - level * SLOTS) << shift);
+            }
+        }
+        return Long.MAX_VALUE; // Unreachable while events are scheduled
+    }
+
+    /**
+     * Finds the first occupied slot in a range of slots.
+     *
+     * @param from First slot to check.
+     * @param to   End of the range, exclusive, within the same level.
+     * @return The slot, or -1 if none of them is occupied.
+     */
+    private int nextOccupied(int from, int to) {
+        if (from >= to) {
+            return -1;
+        }
+        int word = from >>> 6;
+        long bits = occupied[word] & (-1L << (from & 63));
+        while (true) {
+            if (bits != 0) {
+                int slot = (word << 6) + Long.numberOfTrailingZeros(bits);
+                return (slot < to) ? slot : -1;
+            }
+            word++;
+            if ((word << 6) >= to) {
+                return -1;
+            }
+            bits = occupied[word];
+        }
+    }
+
+    /**
+     * Appends an event to the slot matching its tick and the current tick.
+     *
+     * @param event The event.
+     */
+    private void link(int event) {
+        long difference = tick[event] ^ now;
+        int level = (difference == 0) ? 0 : (63 - Long.numberOfLeadingZeros(difference)) / BITS;
+        int slot = level * SLOTS + ((int) (tick[event] >>> (level * BITS)) & (SLOTS - 1));
+        next[event] = -1;
+        prev[event] = tail[slot];
+        if (tail[slot] >= 0) {
+            next[tail[slot]] = event;
+        } else {
+            head[slot] = event;
+            occupied[slot >>> 6] |= 1L << (slot & 63);
+        }
+        tail[slot] = event;
+        slotOf[event] = slot;
+    }
+
+    /**
+     * Removes an event from its slot.
+     *
+     * @param event The event.
+     */
+    private void unlink(int event) {
+        int slot = slotOf[event];
+        if (prev[event] >= 0) {
+            next[prev[event]] = next[event];
+        } else {
+            head[slot] = next[event];
+        }
+        if (next[event] >= 0) {
+            prev[next[event]] = prev[event];
+        } else {
+            tail[slot] = prev[event];
+        }
+        if (head[slot] < 0) {
+            occupied[slot >>> 6] &= ~(1L << (slot & 63));
+        }
+    }
+
+    /**
+     * Empties a slot whose events are about to be linked again.
+     *
+     * @param slot The slot.
+     */
+    private void clearSlot(int slot) {
+        head[slot] = -1;
+        tail[slot] = -1;
+        occupied[slot >>> 6] &= ~(1L << (slot & 63));
+    }
+
+    /**
+     * Returns a handle to the free list.
+     *
+     * @param event The handle.
+     */
+    private void release(int event) {
+        slotOf[event] = -1;
+        next[event] = freeList;
+        freeList = event;
+    }
+
+    /**
+     * Doubles the capacity of the event arrays.
+     */
+    private void grow() {
+        int capacity = tick.length * 2;
+        tick = Arrays.copyOf(tick, capacity);
+        command = Arrays.copyOf(command, capacity);
+        first = Arrays.copyOf(first, capacity);
+        second = Arrays.copyOf(second, capacity);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+        slotOf = Arrays.copyOf(slotOf, capacity);
+    }
+}
@@ -0,0 +1,144 @@
+import java.io.IOException;
+import java.util.PriorityQueue;
+
+/**
+ * Measures the TimingWheel against a java.util.PriorityQueue with many events in flight.
+ * A fixed population of events is scheduled, and every event that runs schedules itself again with
+ * a delay derived from its id and tick: mostly short dwell-like delays, some up to a million ticks and
+ * a few up to a billion, so every level of the wheel is used. Besides them a tenth as many timeouts
+ * are scheduled far beyond the end of the run, and one event in ten cancels a timeout and schedules
+ * it anew, as when a deadline is pushed back. The queue cancels by marking entries, as is usual for
+ * binary heaps. Both runs see the same events in the same tick order, so their checksums must agree.
+ * Each figure is the last of three runs.
+ * Run with: java TimingWheelBenchmark [inFlight] [events]
+ */
+public class TimingWheelBenchmark {
+
+    private static final long TIMEOUT = 1L << 40; // Delay of the timeouts, beyond any tick the run reaches
+
+    /**
+     * Returns the delay of the next run of an event.
+     *
+     * @param id   Id of the event.
+     * @param tick Tick at which the event runs now.
+     * @return Delay in ticks, at least 1.
+     */
+    private static long delay(int id, long tick) {
+        long hash = (id * 0x9E3779B97F4A7C15L) ^ (tick * 0xC2B2AE3D27D4EB4FL);
+        hash ^= hash >>> 29;
+        int kind = (int) ((hash >>> 40) & 127);
+        long bound = (kind < 96) ? 1_000 : (kind < 124) ? 1_000_000 : 1_000_000_000;
+        return 1 + Math.floorMod(hash, bound);
+    }
+
+    /**
+     * Runs the workload on the timing wheel.
+     *
+     * @param inFlight Number of events in flight.
+     * @param events   Number of events to run.
+     * @param report   Whether to print the figures.
+     * @return Checksum of the ticks of all events run.
+     * @throws IOException Never, the actions write nothing.
+     */
+    private static long wheel(int inFlight, long events, boolean report) throws IOException {
+        TimingWheel wheel = new TimingWheel();
+        int[] handle = new int[inFlight]; // Scheduled event of each id
+        int[] timeout = new int[inFlight / 10 + 1]; // Scheduled event of each timeout
+        for (int id = 0; id < inFlight; id++) {
+            handle[id] = wheel.schedule(delay(id, 0), 0, id, 0);
+        }
+        for (int i = 0; i < timeout.length; i++) {
+            timeout[i] = wheel.schedule(TIMEOUT + i, 1, i, 0);
+        }
+        long[] state = new long[2]; // Events run and checksum
+        TimingWheel.Action action = (tick, command, id, unused, event) -> {
+            state[0]++;
+            state[1] += tick * 31 + id;
+            handle[id] = wheel.schedule(tick + delay(id, tick), 0, id, 0);
+            if (id % 10 == 0) {
+                int pushed = (int) ((tick + id) % timeout.length);
+                wheel.cancel(timeout[pushed]);
+                timeout[pushed] = wheel.schedule(TIMEOUT + tick, 1, pushed, 0);
+            }
+        };
+        long begin = System.nanoTime();
+        long until = 0;
+        while (state[0] < events) {
+            until += 1_000;
+            wheel.advance(until, action);
+        }
+        long elapsed = System.nanoTime() - begin;
+        if (report) {
+            System.out.printf("wheel  %,11d in flight %8.2f M events/s%n", inFlight, state[0] * 1e3 / elapsed);
+        }
+        return state[1] + state[0] * 7;
+    }
+
+    /**
+     * Runs the workload on a binary heap.
+     *
+     * @param inFlight Number of events in flight.
+     * @param events   Number of events to run.
+     * @param report   Whether to print the figures.
+     * @return Checksum of the ticks of all events run.
+     */
+    private static long heap(int inFlight, long events, boolean report) {
+        PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0])); // Entries of tick, id, cancelled
+        long[][] timeout = new long[inFlight / 10 + 1][]; // Scheduled entry of each timeout
+        for (int id = 0; id < inFlight; id++) {
+            queue.add(new long[] {delay(id, 0), id, 0});
+        }
+        for (int i = 0; i < timeout.length; i++) {
+            timeout[i] = new long[] {TIMEOUT + i, -1, 0};
+            queue.add(timeout[i]);
+        }
+        long run = 0;
+        long checksum = 0;
+        long begin = System.nanoTime();
+        long until = 0;
+        while (run < events) {
+            until += 1_000;
+            while (!queue.isEmpty() && queue.peek()[0] <= until) {
+                long[] next = queue.poll();
+                if (next[2] != 0) {
+                    continue; // Cancelled
+                }
+                long tick = next[0];
+                int id = (int) next[1];
+                run++;
+                checksum += tick * 31 + id;
+                queue.add(new long[] {tick + delay(id, tick), id, 0});
+                if (id % 10 == 0) {
+                    int pushed = (int) ((tick + id) % timeout.length);
+                    timeout[pushed][2] = 1;
+                    timeout[pushed] = new long[] {TIMEOUT + tick, -1, 0};
+                    queue.add(timeout[pushed]);
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - begin;
+        if (report) {
+            System.out.printf("heap   %,11d in flight %8.2f M events/s%n", inFlight, run * 1e3 / elapsed);
+        }
+        return checksum + run * 7;
+    }
+
+    /**
+     * Runs both schedulers a few times and checks that they ran the same events.
+     *
+     * @param args Optional number of events in flight and number of events to run.
+     * @throws IOException Never, the actions write nothing.
+     */
+    public static void main(String[] args) throws IOException {
+        int inFlight = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        long events = args.length > 1 ? Long.parseLong(args[1]) : 20_000_000;
+
+        for (int round = 0; round < 3; round++) {
+            long wheel = wheel(inFlight, events, round == 2);
+            long heap = heap(inFlight, events, round == 2);
+            if (wheel != heap) {
+                throw new IllegalStateException("Schedulers disagree: " + wheel + ", " + heap);
+            }
+        }
+    }
+}
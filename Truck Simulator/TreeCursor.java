@@ -0,0 +1,67 @@
+/**
+ * Ordered cursor over the parking lots of a Tree, created by Tree.cursorFrom or Tree.cursorUpTo.
+ * The cursor follows the threads between the nodes, so each step is one link whatever the shape
+ * of the tree. It stays valid while lots only change their trucks, but inserting or deleting a
+ * lot in the tree invalidates every open cursor. The cursor visits every lot, so scans for lots in
+ * a given state are faster with Tree.forEachFrom, which skips subtrees by their summaries.
+ */
+public class TreeCursor {
+
+    private ParkingLotNode node; // Node the cursor is at, or null past either end
+
+    /**
+     * Constructs a cursor at the given node.
+     *
+     * @param node The starting node, or null for a cursor past the end.
+     */
+    TreeCursor(ParkingLotNode node) {
+        this.node = node;
+    }
+
+    /**
+     * Checks whether the cursor is at a parking lot.
+     *
+     * @return True if lot() can be called, false once the scan ran past either end.
+     */
+    public boolean valid() {
+        return node != null;
+    }
+
+    /**
+     * Returns the parking lot the cursor is at.
+     *
+     * @return The current parking lot.
+     */
+    public ParkingLot lot() {
+        return node.parkingOfNode;
+    }
+
+    /**
+     * Returns the capacity constraint of the parking lot the cursor is at.
+     *
+     * @return The current capacity constraint.
+     */
+    public int capacity() {
+        return node.parkingOfNode.capacityConstraint;
+    }
+
+    /**
+     * Moves to the parking lot with the next greater capacity.
+     *
+     * @return True if there is one, false if the cursor ran past the largest capacity.
+     */
+    public boolean next() {
+        node = node.next;
+        return node != null;
+    }
+
+    /**
+     * Moves to the parking lot with the next smaller capacity.
+     *
+     * @return True if there is one, false if the cursor ran past the smallest capacity.
+     */
+    public boolean previous() {
+        node = node.previous;
+        return node != null;
+    }
+}
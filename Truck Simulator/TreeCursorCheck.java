@@ -0,0 +1,97 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Checks the range scans of Tree against a TreeSet of the same capacities.
+ * The lots get even capacities inserted in random order, and every scan is started from each
+ * capacity between one below the smallest and one above the largest, so the starts hit keys,
+ * fall between two keys and lie outside the range. A cursor from cursorFrom must walk forward
+ * through exactly the capacities of the tail set, forEachFrom must visit the same lots, and a
+ * cursor from cursorUpTo must walk backward through the head set. The scans are checked again
+ * after half of the lots are deleted, since deletes rewire the threads.
+ * Run with: java TreeCursorCheck [lots] [seed]
+ */
+public class TreeCursorCheck {
+
+    /**
+     * Compares every forward and backward scan of the tree with the reference set.
+     *
+     * @param tree       The tree to check.
+     * @param capacities Capacities of the lots in the tree.
+     * @param maxStart   Largest capacity a scan starts from.
+     * @return Number of scans checked.
+     */
+    private static int checkScans(Tree tree, TreeSet<Integer> capacities, int maxStart) {
+        int scans = 0;
+        for (int start = -1; start <= maxStart; start++) {
+            List<Integer> forward = new ArrayList<>();
+            for (TreeCursor cursor = tree.cursorFrom(start); cursor.valid(); cursor.next()) {
+                forward.add(cursor.capacity());
+            }
+            compare("cursorFrom", start, new ArrayList<>(capacities.tailSet(start, true)), forward);
+
+            List<Integer> visited = new ArrayList<>();
+            tree.forEachFrom(start, 0, parkingLot -> visited.add(parkingLot.capacityConstraint));
+            compare("forEachFrom", start, forward, visited);
+
+            List<Integer> backward = new ArrayList<>();
+            for (TreeCursor cursor = tree.cursorUpTo(start); cursor.valid(); cursor.previous()) {
+                backward.add(cursor.capacity());
+            }
+            compare("cursorUpTo", start, new ArrayList<>(capacities.headSet(start, true).descendingSet()), backward);
+            scans += 3;
+        }
+        return scans;
+    }
+
+    /**
+     * Throws if a scan did not see the expected capacities.
+     *
+     * @param scan     Name of the scan, for the message.
+     * @param start    Capacity the scan started from.
+     * @param expected Capacities the scan should have seen, in order.
+     * @param actual   Capacities the scan saw, in order.
+     */
+    private static void compare(String scan, int start, List<Integer> expected, List<Integer> actual) {
+        if (!expected.equals(actual)) {
+            throw new IllegalStateException(scan + " from " + start + " saw " + actual + " instead of " + expected);
+        }
+    }
+
+    /**
+     * Entry point of the check.
+     *
+     * @param args Optional number of lots and seed.
+     */
+    public static void main(String[] args) {
+        int lots = (args.length > 0) ? Integer.parseInt(args[0]) : 300;
+        long seed = (args.length > 1) ? Long.parseLong(args[1]) : 42;
+        Random random = new Random(seed);
+
+        List<Integer> order = new ArrayList<>();
+        for (int i = 1; i <= lots; i++) {
+            order.add(2 * i);
+        }
+        Collections.shuffle(order, random);
+
+        Tree tree = new Tree(null);
+        TreeSet<Integer> capacities = new TreeSet<>();
+        int scans = checkScans(tree, capacities, 2);
+        for (int capacity : order) {
+            tree.insertParkingLot(new ParkingLot(capacity, 1 + random.nextInt(8)));
+            capacities.add(capacity);
+        }
+        scans += checkScans(tree, capacities, 2 * lots + 1);
+
+        for (int i = 0; i < lots / 2; i++) {
+            int capacity = order.get(i);
+            tree.delete(capacity);
+            capacities.remove(capacity);
+        }
+        scans += checkScans(tree, capacities, 2 * lots + 1);
+        System.out.println(scans + " scans over " + lots + " lots match");
+    }
+}
@@ -0,0 +1,98 @@
+import java.util.Arrays;
+
+/**
+ * Stores the trucks of a simulation in parallel primitive arrays addressed by int handles.
+ * A handle is an index into the arrays. Handles of trucks that left the simulation are
+ * kept on a free stack and given to the next new truck, so once the arrays have grown to the
+ * largest number of trucks alive at once, adding and moving trucks allocates nothing.
+ */
+public class TruckStore {
+
+    private static final int INITIAL_CAPACITY = 64; // Array length before the first growth
+
+    int[] truckId; // Unique ID of the truck with each handle
+    int[] load; // Current load of the truck with each handle
+    int[] loadCapacity; // Maximum load capacity of the truck with each handle
+    private int[] freeHandles; // Stack of handles that can be reused
+    private int freeCount; // Number of handles on the free stack
+    private int used; // Number of handles ever given out, the next fresh handle
+
+    /**
+     * Constructs an empty store.
+     */
+    public TruckStore() {
+        truckId = new int[INITIAL_CAPACITY];
+        load = new int[INITIAL_CAPACITY];
+        loadCapacity = new int[INITIAL_CAPACITY];
+        freeHandles = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Adds a truck to the store.
+     *
+     * @param id           Unique ID of the truck.
+     * @param capacity     Maximum load capacity of the truck.
+     * @param initialLoad  Initial load of the truck.
+     * @return The handle of the truck.
+     */
+    public int allocate(int id, int capacity, int initialLoad) {
+        int handle;
+        if (freeCount > 0) {
+            handle = freeHandles[--freeCount];
+        } else {
+            if (used == truckId.length) {
+                grow();
+            }
+            handle = used++;
+        }
+        truckId[handle] = id;
+        loadCapacity[handle] = capacity;
+        load[handle] = initialLoad;
+        return handle;
+    }
+
+    /**
+     * Removes a truck from the store so that its handle can be reused.
+     *
+     * @param handle The handle of the truck.
+     */
+    public void release(int handle) {
+        freeHandles[freeCount++] = handle;
+    }
+
+    /**
+     * Removes every truck of a queue from the store, leaving the queue itself as it is.
+     *
+     * @param queue The queue whose trucks left the simulation.
+     */
+    public void releaseAll(Queue queue) {
+        for (int i = 0; i < queue.size; i++) {
+            release(queue.queue[(queue.front + i) % queue.queue.length]);
+        }
+    }
+
+    /**
+     * Adds a specified load to a truck.
+     * If the load reaches the truck's capacity, resets load to 0.
+     *
+     * @param handle  The handle of the truck.
+     * @param addLoad Amount of load to add to the truck.
+     */
+    public void addLoad(int handle, int addLoad) {
+        load[handle] += addLoad; // Add the specified load to the current load
+        if (load[handle] == loadCapacity[handle]) { // Check if the load reaches the capacity
+            load[handle] = 0; // Reset load to 0 if full capacity is reached
+        }
+    }
+
+    /**
+     * Doubles the length of all arrays.
+     */
+    private void grow() {
+        int length = truckId.length * 2;
+        truckId = Arrays.copyOf(truckId, length);
+        load = Arrays.copyOf(load, length);
+        loadCapacity = Arrays.copyOf(loadCapacity, length);
+        freeHandles = Arrays.copyOf(freeHandles, length);
+    }
+}
@@ -0,0 +1,107 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.Supplier;
+
+/**
+ * One depot of a multi-yard simulation, with its own parking lot index, trucks and output.
+ * Commands are first queued with add and later executed together by run, which may happen on
+ * any thread as long as a yard is never run by two threads at once. The yard keeps two command
+ * lists, so that the next commands can be queued while the previous ones are still running.
+ * Results are written to an in-memory buffer, each line prefixed with the yard id, until they
+ * are copied to the shared output by writeTo.
+ */
+public class Yard {
+
+    final int id; // Yard id that tags the commands of this yard
+    private final ParkingLotIndex lots; // Index of the parking lots of this yard
+    private final TruckStore trucks = new TruckStore(); // Trucks of this yard
+    private final LoadBatch batch; // Reused by the load commands of this yard
+    private final ByteArrayOutputStream results = new ByteArrayOutputStream(); // Results not yet copied to the output
+    private final OutputBuffer out = new OutputBuffer(results, 1 << 14); // Encodes results into the byte stream
+    private int[] queued = new int[48]; // Commands waiting for the next run, three ints each
+    private int queuedCount; // Number of ints used in queued
+    private int[] running = new int[48]; // Commands of the current run, three ints each
+    private int runningCount; // Number of ints used in running
+
+    /**
+     * Constructs an empty yard.
+     *
+     * @param id    Yard id that tags the commands of this yard.
+     * @param index Creates the empty parking lot index of the yard.
+     */
+    public Yard(int id, Supplier<ParkingLotIndex> index) {
+        this.id = id;
+        this.lots = index.get();
+        this.batch = new LoadBatch(lots, trucks);
+    }
+
+    /**
+     * Queues a command for the next run.
+     *
+     * @param command The CommandReader command code.
+     * @param first   First argument of the command, 0 if it has none.
+     * @param second  Second argument of the command, 0 if it has none.
+     */
+    void add(int command, int first, int second) {
+        if (queuedCount + 3 > queued.length) {
+            int[] grown = new int[queued.length * 2];
+            System.arraycopy(queued, 0, grown, 0, queuedCount);
+            queued = grown;
+        }
+        queued[queuedCount++] = command;
+        queued[queuedCount++] = first;
+        queued[queuedCount++] = second;
+    }
+
+    /**
+     * Checks whether commands are waiting for the next run.
+     *
+     * @return true if add was called since the last swap, false otherwise.
+     */
+    boolean hasQueued() {
+        return queuedCount > 0;
+    }
+
+    /**
+     * Makes the queued commands the ones executed by the next run, and starts a new empty queue.
+     * Must not be called while the yard is running.
+     */
+    void swap() {
+        int[] commands = running;
+        running = queued;
+        runningCount = queuedCount;
+        queued = commands;
+        queuedCount = 0;
+    }
+
+    /**
+     * Executes the commands of the last swap in order and buffers their results.
+     *
+     * @throws IOException If writing the results fails.
+     */
+    void run() throws IOException {
+        for (int i = 0; i < runningCount; i += 3) {
+            int command = running[i];
+            if (command >= CommandReader.ADD_TRUCK) { // Commands from add_truck on all write a result line
+                out.writeInt(id);
+                out.write(' ');
+            }
+            Main.execute(command, running[i + 1], running[i + 2], lots, trucks, batch, out);
+        }
+        runningCount = 0;
+        out.flush();
+    }
+
+    /**
+     * Copies the buffered results to a stream and empties the buffer.
+     * Must not be called while the yard is running.
+     *
+     * @param stream Stream the results are written to.
+     * @throws IOException If writing to the stream fails.
+     */
+    void writeTo(OutputStream stream) throws IOException {
+        results.writeTo(stream);
+        results.reset();
+    }
+}